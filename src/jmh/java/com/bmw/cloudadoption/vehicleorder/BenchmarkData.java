@@ -0,0 +1,55 @@
+package com.bmw.cloudadoption.vehicleorder;
+
+import com.bmw.cloudadoption.vehicleorder.entity.AssemblyLine;
+import com.bmw.cloudadoption.vehicleorder.entity.OrderPerPlant;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Deterministic vehicle orders for the benchmarks, with the low cardinality
+ * of plants, lines and models of production data.
+ */
+public final class BenchmarkData {
+
+    public static final String TOPIC = "bmw.cloudadoption.VehicleMockOrder.v1";
+
+    private static final String[] PLANTS = {"034.00", "061.00", "006.10", "007.00", "078.20"};
+    private static final String[] VEHICLE_IDS = {"G01", "G05", "G20", "G30", "U11", "I20"};
+    private static final LocalDate FIRST_DAY = LocalDate.of(2022, 5, 2);
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @param i number of the order
+     * @return the order with the order number {@link #orderNumber(int)}
+     */
+    public static VehicleOrder vehicleOrder(int i) {
+        String plant = PLANTS[i % PLANTS.length];
+        String secondPlant = PLANTS[(i + 1) % PLANTS.length];
+        LocalDate start = FIRST_DAY.plusDays(i % 365);
+        return new VehicleOrder(orderNumber(i), VEHICLE_IDS[i % VEHICLE_IDS.length], Arrays.asList(
+                new OrderPerPlant(plant, start, start.plusDays(1), new AssemblyLine(plant, "R" + (i % 3), "0" + (i % 4))),
+                new OrderPerPlant(secondPlant, start.plusDays(2), start.plusDays(5), new AssemblyLine(secondPlant, "R0", "01"))));
+    }
+
+    /**
+     * @param count number of orders
+     * @return the orders 0 to count - 1
+     */
+    public static List<VehicleOrder> vehicleOrders(int count) {
+        List<VehicleOrder> vehicleOrders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            vehicleOrders.add(vehicleOrder(i));
+        }
+        return vehicleOrders;
+    }
+
+    public static String orderNumber(int i) {
+        return String.format("MB%08d", i);
+    }
+}
@@ -0,0 +1,108 @@
+package com.bmw.cloudadoption.vehicleorder;
+
+import com.bmw.cloudadoption.vehicleorder.control.AppliedRecordRegistry;
+import com.bmw.cloudadoption.vehicleorder.control.BoundedMemoryRocksDBConfig;
+import com.bmw.cloudadoption.vehicleorder.control.StoreBackend;
+import com.bmw.cloudadoption.vehicleorder.control.serdes.StoreValueFormat;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import io.quarkus.kafka.client.serialization.JsonbSerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local reads of the vehicle-order-store as done by getEntry and getAll,
+ * against the topology of {@link TopologyProducer} populated via
+ * {@link TopologyTestDriver}, for every store backend and value format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StoreAccessBenchmark {
+
+    @Param({"PERSISTENT", "IN_MEMORY", "LRU"})
+    StoreBackend backend;
+
+    @Param({"JSON", "BINARY"})
+    StoreValueFormat format;
+
+    @Param({"10000"})
+    int size;
+
+    private Path stateDir;
+    private TopologyTestDriver driver;
+    private KeyValueStore<String, VehicleOrder> store;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        TopologyProducer topologyProducer = new TopologyProducer();
+        topologyProducer.vehicleOrderTopic = BenchmarkData.TOPIC;
+        topologyProducer.storeValueFormat = format;
+        topologyProducer.storeBackend = backend;
+        topologyProducer.lruMaxEntries = size;
+        topologyProducer.appliedRecordRegistry = new AppliedRecordRegistry();
+
+        stateDir = Files.createTempDirectory("store-access-benchmark");
+        Properties properties = new Properties();
+        properties.put(StreamsConfig.APPLICATION_ID_CONFIG, "store-access-benchmark");
+        properties.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        properties.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        properties.put(StreamsConfig.ROCKSDB_CONFIG_SETTER_CLASS_CONFIG, BoundedMemoryRocksDBConfig.class);
+        driver = new TopologyTestDriver(topologyProducer.buildTopology(), properties);
+
+        try (JsonbSerializer<VehicleOrder> serializer = new JsonbSerializer<>()) {
+            TestInputTopic<String, VehicleOrder> topic = driver.createInputTopic(BenchmarkData.TOPIC, new StringSerializer(), serializer);
+            for (int i = 0; i < size; i++) {
+                VehicleOrder vehicleOrder = BenchmarkData.vehicleOrder(i);
+                topic.pipeInput(vehicleOrder.getOrderNumber(), vehicleOrder);
+            }
+        }
+        store = driver.getKeyValueStore(TopologyProducer.VEHICLE_ORDER_STORE_NAME);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        driver.close();
+        Utils.delete(stateDir.toFile());
+    }
+
+    @Benchmark
+    public VehicleOrder getEntry() {
+        return store.get(BenchmarkData.orderNumber(ThreadLocalRandom.current().nextInt(size)));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void all(Blackhole blackhole) {
+        try (KeyValueIterator<String, VehicleOrder> iterator = store.all()) {
+            while (iterator.hasNext()) {
+                KeyValue<String, VehicleOrder> entry = iterator.next();
+                blackhole.consume(entry.value);
+            }
+        }
+    }
+}
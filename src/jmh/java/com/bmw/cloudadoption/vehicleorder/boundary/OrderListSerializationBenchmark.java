@@ -0,0 +1,89 @@
+package com.bmw.cloudadoption.vehicleorder.boundary;
+
+import com.bmw.cloudadoption.vehicleorder.BenchmarkData;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+
+/**
+ * JSON-B vs Jackson for the order lists returned by the REST API and
+ * exchanged between the instances.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderListSerializationBenchmark {
+
+    // type of the order lists for JSON-B
+    private static final Type ORDER_LIST = new ArrayList<VehicleOrder>() {
+    }.getClass().getGenericSuperclass();
+
+    @Param({"10", "1000"})
+    int size;
+
+    private List<VehicleOrder> vehicleOrders;
+
+    private Jsonb jsonb;
+    private ObjectMapper objectMapper;
+
+    private String json;
+
+    @Setup
+    public void setup() throws IOException {
+        vehicleOrders = BenchmarkData.vehicleOrders(size);
+        jsonb = JsonbBuilder.create();
+        // configured like the ObjectMapper of Quarkus
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        json = objectMapper.writeValueAsString(vehicleOrders);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        jsonb.close();
+    }
+
+    @Benchmark
+    public byte[] serializeJsonb() {
+        return jsonb.toJson(vehicleOrders).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<VehicleOrder> deserializeJsonb() {
+        return jsonb.fromJson(json, ORDER_LIST);
+    }
+
+    @Benchmark
+    public byte[] serializeJackson() throws IOException {
+        return objectMapper.writeValueAsBytes(vehicleOrders);
+    }
+
+    @Benchmark
+    public List<VehicleOrder> deserializeJackson() throws IOException {
+        return objectMapper.readValue(json, new TypeReference<List<VehicleOrder>>() {
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import com.bmw.cloudadoption.vehicleorder.BenchmarkData;
+
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.streams.state.HostInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key-to-host routing of {@link InteractiveQueriesBase}: the partition of a
+ * key, as computed by kafka-streams for queryMetadataForKey, the host of the
+ * partition and the lookup of its rest-client, compared with the former
+ * lookup by formatted URL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RoutingBenchmark {
+
+    @Param({"12"})
+    int partitions;
+
+    @Param({"3"})
+    int instances;
+
+    private final Serializer<String> keySerializer = new StringSerializer();
+
+    private final Map<Integer, HostInfo> hostsByPartition = new HashMap<>();
+    private RestClientRegistry<Object> restClients;
+    private final Map<String, Object> restClientsByUrl = new HashMap<>();
+
+    @Setup
+    public void setup() {
+        for (int partition = 0; partition < partitions; partition++) {
+            hostsByPartition.put(partition, new HostInfo("10.0.0." + (partition % instances), 8080));
+        }
+        restClients = new RestClientRegistry<>(hostInfo -> new Object());
+        restClients.retain(new HashSet<>(hostsByPartition.values()));
+    }
+
+    private HostInfo hostOf(String key) {
+        byte[] keyBytes = keySerializer.serialize(BenchmarkData.TOPIC, key);
+        int partition = Utils.toPositive(Utils.murmur2(keyBytes)) % partitions;
+        return hostsByPartition.get(partition);
+    }
+
+    private static String randomKey() {
+        return BenchmarkData.orderNumber(ThreadLocalRandom.current().nextInt(100_000));
+    }
+
+    @Benchmark
+    public HostInfo routeKey() {
+        return hostOf(randomKey());
+    }
+
+    @Benchmark
+    public Object routeKeyToRestClient() {
+        return restClients.get(hostOf(randomKey()));
+    }
+
+    @Benchmark
+    public Object routeKeyToRestClientByUrl() {
+        HostInfo hostInfo = hostOf(randomKey());
+        String url = String.format("http://%s:%d", hostInfo.host(), hostInfo.port());
+        return restClientsByUrl.computeIfAbsent(url, u -> new Object());
+    }
+}
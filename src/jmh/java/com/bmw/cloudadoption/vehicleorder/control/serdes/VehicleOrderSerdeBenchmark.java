@@ -0,0 +1,85 @@
+package com.bmw.cloudadoption.vehicleorder.control.serdes;
+
+import com.bmw.cloudadoption.vehicleorder.BenchmarkData;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.quarkus.kafka.client.serialization.JsonbSerde;
+import org.apache.kafka.common.serialization.Serde;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of one vehicle order as done for every record of the topic,
+ * the state-stores and their changelogs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VehicleOrderSerdeBenchmark {
+
+    private VehicleOrder vehicleOrder;
+
+    private Serde<VehicleOrder> jsonbSerde;
+    private Serde<VehicleOrder> binarySerde;
+    private ObjectMapper objectMapper;
+
+    private byte[] jsonb;
+    private byte[] binary;
+    private byte[] jackson;
+
+    @Setup
+    public void setup() throws IOException {
+        vehicleOrder = BenchmarkData.vehicleOrder(42);
+        jsonbSerde = new JsonbSerde<>(VehicleOrder.class);
+        binarySerde = new VehicleOrderBinarySerde();
+        // configured like the ObjectMapper of Quarkus
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        jsonb = jsonbSerde.serializer().serialize(BenchmarkData.TOPIC, vehicleOrder);
+        binary = binarySerde.serializer().serialize(BenchmarkData.TOPIC, vehicleOrder);
+        jackson = objectMapper.writeValueAsBytes(vehicleOrder);
+    }
+
+    @Benchmark
+    public byte[] serializeJsonb() {
+        return jsonbSerde.serializer().serialize(BenchmarkData.TOPIC, vehicleOrder);
+    }
+
+    @Benchmark
+    public VehicleOrder deserializeJsonb() {
+        return jsonbSerde.deserializer().deserialize(BenchmarkData.TOPIC, jsonb);
+    }
+
+    @Benchmark
+    public byte[] serializeBinary() {
+        return binarySerde.serializer().serialize(BenchmarkData.TOPIC, vehicleOrder);
+    }
+
+    @Benchmark
+    public VehicleOrder deserializeBinary() {
+        return binarySerde.deserializer().deserialize(BenchmarkData.TOPIC, binary);
+    }
+
+    @Benchmark
+    public byte[] serializeJackson() throws IOException {
+        return objectMapper.writeValueAsBytes(vehicleOrder);
+    }
+
+    @Benchmark
+    public VehicleOrder deserializeJackson() throws IOException {
+        return objectMapper.readValue(jackson, VehicleOrder.class);
+    }
+}
@@ -1,26 +1,85 @@
 package com.bmw.cloudadoption.vehicleorder;
 
+import com.bmw.cloudadoption.vehicleorder.control.AppliedRecordProcessor;
+import com.bmw.cloudadoption.vehicleorder.control.AppliedRecordRegistry;
+import com.bmw.cloudadoption.vehicleorder.control.ConditionalUpsertProcessor;
+import com.bmw.cloudadoption.vehicleorder.control.IndexTermPartitioner;
+import com.bmw.cloudadoption.vehicleorder.control.SecondaryIndexProcessor;
+import com.bmw.cloudadoption.vehicleorder.control.StoreBackend;
+import com.bmw.cloudadoption.vehicleorder.control.StoredValues;
+import com.bmw.cloudadoption.vehicleorder.control.serdes.StoreValueFormat;
+import com.bmw.cloudadoption.vehicleorder.entity.AssemblyLine;
+import com.bmw.cloudadoption.vehicleorder.entity.OrderPerPlant;
 import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
 
 import io.quarkus.kafka.client.serialization.JsonbSerde;
+import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.streams.KeyValue;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.Topology;
 import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Grouped;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.KTable;
 import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.kstream.Repartitioned;
 import org.apache.kafka.streams.state.KeyValueBytesStoreSupplier;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.StoreBuilder;
 import org.apache.kafka.streams.state.Stores;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
 
 public class TopologyProducer {
 
     public static final String VEHICLE_ORDER_STORE_NAME = "vehicle-order-store";
+    public static final String VEHICLE_ID_INDEX_STORE_NAME = "vehicle-order-by-vehicle-id-store";
+    public static final String VEHICLE_ID_TERMS_STORE_NAME = "vehicle-order-by-vehicle-id-terms-store";
+    public static final String START_DATE_INDEX_STORE_NAME = "vehicle-order-by-start-date-store";
+    public static final String START_DATE_TERMS_STORE_NAME = "vehicle-order-by-start-date-terms-store";
+    public static final String END_DATE_INDEX_STORE_NAME = "vehicle-order-by-end-date-store";
+    public static final String END_DATE_TERMS_STORE_NAME = "vehicle-order-by-end-date-terms-store";
+    public static final String PLANT_VIEW_STORE_NAME = "vehicle-order-by-plant-store";
+    public static final String PLANT_TERMS_STORE_NAME = "vehicle-order-by-plant-terms-store";
+    public static final String PLANT_COUNT_STORE_NAME = "vehicle-order-count-by-plant-store";
+    public static final String ASSEMBLY_LINE_COUNT_STORE_NAME = "vehicle-order-count-by-assembly-line-store";
+    public static final String PLANNED_DAY_COUNT_STORE_NAME = "vehicle-order-count-by-planned-day-store";
+    private static final String PLANT_REPARTITION_NAME = "vehicle-order-by-plant";
+    private static final String GROUP_SEPARATOR = "/";
 
     @ConfigProperty(name = "KAFKA_VEHICLE_ORDER_TOPIC")
     String vehicleOrderTopic;
 
+    // format of the vehicle orders inside the state-stores and their changelogs
+    @ConfigProperty(name = "vehicleorder.store.value-format", defaultValue = "json")
+    StoreValueFormat storeValueFormat;
+
+    // backend of the state-stores, persistent, in_memory or lru
+    @ConfigProperty(name = "vehicleorder.store.backend", defaultValue = "persistent")
+    StoreBackend storeBackend;
+
+    // maximum number of orders kept by the lru backend
+    @ConfigProperty(name = "vehicleorder.store.lru.max-entries", defaultValue = "100000")
+    int lruMaxEntries;
+
+    @Inject
+    AppliedRecordRegistry appliedRecordRegistry;
+
     /**
      *
      * @return Topology of this application
@@ -30,13 +89,148 @@ public class TopologyProducer {
 
         StreamsBuilder builder = new StreamsBuilder();
 
-        KeyValueBytesStoreSupplier vehicleOrderStoreSupplier = Stores.persistentKeyValueStore(VEHICLE_ORDER_STORE_NAME);
-        builder.table(vehicleOrderTopic,
-                Consumed.with(Serdes.String(), new JsonbSerde<>(VehicleOrder.class)),
-                Materialized.as(vehicleOrderStoreSupplier)
-        );
+        Serde<VehicleOrder> storeSerde = storeValueFormat.vehicleOrderSerde();
+
+        KeyValueBytesStoreSupplier vehicleOrderStoreSupplier = storeBackend.primaryStore(VEHICLE_ORDER_STORE_NAME, lruMaxEntries);
+        // the topic stays JSON, the state-store and its changelog use the configured format
+        // same timestamped store a table would create, caching stays disabled, so that every update is forwarded as soon as it is in the state-store
+        builder.addStateStore(Stores.timestampedKeyValueStoreBuilder(vehicleOrderStoreSupplier, Serdes.String(), storeSerde));
+        Serializer<VehicleOrder> storeSerializer = storeSerde.serializer();
+
+        // materialized by a processor instead of a table, so that conditional writes are checked against the current value
+        KStream<String, VehicleOrder> vehicleOrderChanges = builder
+                .stream(vehicleOrderTopic, Consumed.with(Serdes.String(), new JsonbSerde<>(VehicleOrder.class)))
+                .process(() -> new ConditionalUpsertProcessor<VehicleOrder>(VEHICLE_ORDER_STORE_NAME, appliedRecordRegistry,
+                        vehicleOrder -> StoredValues.version(storeSerializer.serialize(VEHICLE_ORDER_STORE_NAME, vehicleOrder))),
+                        VEHICLE_ORDER_STORE_NAME);
+
+        // secondary index of the order numbers per vehicleId, co-partitioned with the state-store
+        addIndex(builder, vehicleOrderChanges, VEHICLE_ID_INDEX_STORE_NAME, VEHICLE_ID_TERMS_STORE_NAME,
+                vehicleOrder -> Collections.singleton(vehicleOrder.getVehicleId()));
+
+        // sorted indexes of the order numbers per planned start and end date, ISO dates sort chronologically
+        addIndex(builder, vehicleOrderChanges, START_DATE_INDEX_STORE_NAME, START_DATE_TERMS_STORE_NAME,
+                vehicleOrder -> plannedDates(vehicleOrder, OrderPerPlant::getPlannedOrderStartDate));
+        addIndex(builder, vehicleOrderChanges, END_DATE_INDEX_STORE_NAME, END_DATE_TERMS_STORE_NAME,
+                vehicleOrder -> plannedDates(vehicleOrder, OrderPerPlant::getPlannedOrderEndDate));
+
+        // view of the orders per plant, repartitioned by plantId so all orders of a plant are hosted by one instance
+        // an order belongs to the plants of its OrderPerPlant entries and of their assembly lines
+        builder.addStateStore(termsStoreBuilder(PLANT_TERMS_STORE_NAME));
+        KTable<String, VehicleOrder> plantView = vehicleOrderChanges
+                .process(() -> new SecondaryIndexProcessor<VehicleOrder>(null, PLANT_TERMS_STORE_NAME, TopologyProducer::plantIds), PLANT_TERMS_STORE_NAME)
+                .repartition(Repartitioned.<String, VehicleOrder>as(PLANT_REPARTITION_NAME)
+                        .withKeySerde(Serdes.String())
+                        .withValueSerde(storeSerde)
+                        .withStreamPartitioner(new IndexTermPartitioner<>()))
+                .toTable(Materialized.<String, VehicleOrder>as(storeBackend.derivedStore(PLANT_VIEW_STORE_NAME))
+                        .withKeySerde(Serdes.String())
+                        .withValueSerde(storeSerde));
+
+        // counters per plant, assembly line and planned day, kept up to date on updates and deletes of the plant view
+        // the plant view holds an order once per plant, so every group starts with the plantId to count each order once
+        addCount(plantView, PLANT_COUNT_STORE_NAME, (plantId, orderPerPlant) -> plantId);
+        addCount(plantView, ASSEMBLY_LINE_COUNT_STORE_NAME, TopologyProducer::assemblyLineGroup);
+        addCount(plantView, PLANNED_DAY_COUNT_STORE_NAME, (plantId, orderPerPlant) -> orderPerPlant.getPlannedOrderStartDate() == null ? null
+                : String.join(GROUP_SEPARATOR, plantId, orderPerPlant.getPlannedOrderStartDate().toString()));
+
+        // notify waiting writers about every record applied to the state-store, after all indexes are up to date
+        vehicleOrderChanges
+                .process(() -> new AppliedRecordProcessor<>(appliedRecordRegistry, VEHICLE_ORDER_STORE_NAME));
 
         return builder.build();
     }
 
+    /**
+     * Counts the entries of the plant view per group. Entries without a group
+     * are not counted.
+     *
+     * @param plantView table with one entry per plant and order
+     * @param countStoreName name of the store containing the counts
+     * @param group returns the group of the order within a plant
+     */
+    private void addCount(KTable<String, VehicleOrder> plantView, String countStoreName,
+            BiFunction<String, OrderPerPlant, String> group) {
+        plantView
+                .filter((plantKey, vehicleOrder) -> groupOf(plantKey, vehicleOrder, group) != null)
+                .groupBy((plantKey, vehicleOrder) -> KeyValue.pair(groupOf(plantKey, vehicleOrder, group), plantKey),
+                        Grouped.with(Serdes.String(), Serdes.String()))
+                .count(Materialized.<String, Long>as(storeBackend.derivedStore(countStoreName))
+                        .withKeySerde(Serdes.String())
+                        .withValueSerde(Serdes.Long()));
+    }
+
+    private static String groupOf(String plantKey, VehicleOrder vehicleOrder, BiFunction<String, OrderPerPlant, String> group) {
+        String plantId = SecondaryIndexProcessor.term(plantKey);
+        return vehicleOrder.getOrderPerPlant().stream()
+                .filter(orderPerPlant -> plantIds(orderPerPlant).contains(plantId))
+                .findFirst()
+                .map(orderPerPlant -> group.apply(plantId, orderPerPlant))
+                .orElse(null);
+    }
+
+    // the plant of an OrderPerPlant and the plant of its assembly line, usually the same
+    private static Collection<String> plantIds(VehicleOrder vehicleOrder) {
+        if (vehicleOrder.getOrderPerPlant() == null) {
+            return Collections.emptyList();
+        }
+        return vehicleOrder.getOrderPerPlant().stream()
+                .flatMap(orderPerPlant -> plantIds(orderPerPlant).stream())
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> plantIds(OrderPerPlant orderPerPlant) {
+        return Arrays.asList(orderPerPlant.getPlantId(),
+                orderPerPlant.getAssemblyLine() != null ? orderPerPlant.getAssemblyLine().getPlantId() : null);
+    }
+
+    // orders without a complete assembly line are not counted, String.join would count them under "null"
+    private static String assemblyLineGroup(String plantId, OrderPerPlant orderPerPlant) {
+        AssemblyLine assemblyLine = orderPerPlant.getAssemblyLine();
+        if (assemblyLine == null || assemblyLine.getAreaCode() == null || assemblyLine.getLogisticLevel() == null) {
+            return null;
+        }
+        return String.join(GROUP_SEPARATOR, plantId, assemblyLine.getAreaCode(), assemblyLine.getLogisticLevel());
+    }
+
+    private static Collection<String> plannedDates(VehicleOrder vehicleOrder, Function<OrderPerPlant, LocalDate> plannedDate) {
+        if (vehicleOrder.getOrderPerPlant() == null) {
+            return Collections.emptyList();
+        }
+        return vehicleOrder.getOrderPerPlant().stream()
+                .map(plannedDate)
+                .filter(Objects::nonNull)
+                .map(LocalDate::toString)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Adds a {@link SecondaryIndexProcessor} maintaining a local index store
+     * for the given changes of a table.
+     *
+     * @param builder of the topology
+     * @param changes of the indexed table
+     * @param indexStoreName name of the index store
+     * @param termsStoreName name of the store remembering the terms per key
+     * @param terms returns the terms a value is indexed under
+     */
+    private void addIndex(StreamsBuilder builder, KStream<String, VehicleOrder> changes, String indexStoreName,
+            String termsStoreName, Function<VehicleOrder, Collection<String>> terms) {
+        builder.addStateStore(Stores.keyValueStoreBuilder(storeBackend.derivedStore(indexStoreName),
+                Serdes.String(), Serdes.String()));
+        builder.addStateStore(termsStoreBuilder(termsStoreName));
+        changes.process(() -> new SecondaryIndexProcessor<>(indexStoreName, termsStoreName, terms), indexStoreName, termsStoreName);
+    }
+
+    private StoreBuilder<KeyValueStore<String, List<String>>> termsStoreBuilder(String termsStoreName) {
+        return Stores.keyValueStoreBuilder(storeBackend.derivedStore(termsStoreName),
+                Serdes.String(), stringListSerde());
+    }
+
+    // ArrayList.class is a raw class literal, the serde itself is typed by its element serde
+    @SuppressWarnings("unchecked")
+    private static Serde<List<String>> stringListSerde() {
+        return Serdes.ListSerde(ArrayList.class, Serdes.String());
+    }
+
 }
@@ -0,0 +1,168 @@
+package com.bmw.cloudadoption.vehicleorder.boundary;
+
+import com.bmw.cloudadoption.vehicleorder.control.ChangeFeedListener;
+import com.bmw.cloudadoption.vehicleorder.control.ChangeFeedPosition;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrderChange;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+/**
+ * Sends the change feed to one client as server-sent events. The id of every
+ * event is the position of the client after the event, so the client resumes
+ * from it via {@code Last-Event-ID} after a reconnect.
+ * <p>
+ * The feeds notify this sink on the stream threads and the threads of the
+ * rest-clients, so events are only queued there. The queue is drained on the
+ * given executor, one event at a time per client. A client that falls behind
+ * by more than the queue size is disconnected, it resumes from its last event
+ * after reconnecting, or gets a {@code reset} event if that is no longer
+ * buffered.
+ */
+public class ChangeFeedSink implements ChangeFeedListener {
+
+    private final SseEventSink eventSink;
+    private final Sse sse;
+    private final int queueSize;
+    private final Executor executor;
+    private final ChangeFeedPosition position = new ChangeFeedPosition();
+
+    // events not yet handed to the client, oldest first
+    private final Deque<OutboundSseEvent> queue = new ArrayDeque<>();
+
+    private Runnable cancel;
+    // an event is being sent or a drain is scheduled
+    private boolean draining;
+    // no more events are queued, the sink is closed once the queue is sent
+    private boolean ending;
+    private boolean closed;
+
+    /**
+     * @param eventSink of the client
+     * @param sse to build the events
+     * @param since resume position of the client, {@code null} for none
+     * @param queueSize maximum number of events waiting to be sent to the
+     * client
+     * @param executor sends the events and closes the sink
+     */
+    public ChangeFeedSink(SseEventSink eventSink, Sse sse, ChangeFeedPosition since, int queueSize, Executor executor) {
+        this.eventSink = eventSink;
+        this.sse = sse;
+        this.queueSize = queueSize;
+        this.executor = executor;
+        if (since != null) {
+            position.advance(since);
+        }
+    }
+
+    /**
+     * @param cancel cancels the subscriptions feeding this sink, called once
+     * the client is gone or a feed ended
+     */
+    public void setCancel(Runnable cancel) {
+        boolean alreadyClosed;
+        synchronized (this) {
+            this.cancel = cancel;
+            alreadyClosed = closed;
+        }
+        if (alreadyClosed) {
+            cancel.run();
+        }
+    }
+
+    @Override
+    public synchronized void onPosition(ChangeFeedPosition other) {
+        position.advance(other);
+        enqueue(EVENT_POSITION, MediaType.TEXT_PLAIN_TYPE, position.toString());
+    }
+
+    @Override
+    public synchronized void onChange(VehicleOrderChange change) {
+        position.advance(change.getPartition(), change.getOffset());
+        enqueue(change.getValue() != null ? EVENT_UPSERT : EVENT_DELETE, MediaType.APPLICATION_JSON_TYPE, change);
+    }
+
+    @Override
+    public synchronized void onReset() {
+        enqueue(EVENT_RESET, MediaType.TEXT_PLAIN_TYPE, position.toString());
+    }
+
+    @Override
+    public synchronized void onClose() {
+        // the queued events are still sent
+        end();
+    }
+
+    private void enqueue(String name, MediaType mediaType, Object data) {
+        if (closed || ending) {
+            return;
+        }
+        if (queue.size() >= queueSize) {
+            // the client does not keep up, it resumes from the id of its last event after reconnecting
+            queue.clear();
+            ending = true;
+            executor.execute(this::close);
+            return;
+        }
+        queue.addLast(sse.newEventBuilder()
+                .name(name)
+                .id(position.toString())
+                .mediaType(mediaType)
+                .data(data)
+                .build());
+        if (!draining) {
+            draining = true;
+            executor.execute(this::drain);
+        }
+    }
+
+    private void end() {
+        ending = true;
+        if (!draining) {
+            draining = true;
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        OutboundSseEvent event;
+        synchronized (this) {
+            event = closed ? null : queue.pollFirst();
+            if (event == null) {
+                draining = false;
+                if (closed || !ending) {
+                    return;
+                }
+            }
+        }
+        if (event == null || eventSink.isClosed()) {
+            close();
+            return;
+        }
+        // the next event is sent once the client took this one, on the executor instead of the thread completing the send
+        eventSink.send(event).whenComplete((ignored, e) -> executor.execute(e != null ? this::close : this::drain));
+    }
+
+    private void close() {
+        Runnable cancelFeeds;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.clear();
+            cancelFeeds = cancel;
+        }
+        // outside of the lock, the feeds notify this sink while holding their own locks
+        if (cancelFeeds != null) {
+            cancelFeeds.run();
+        }
+        eventSink.close();
+    }
+}
@@ -0,0 +1,117 @@
+package com.bmw.cloudadoption.vehicleorder.boundary;
+
+import com.bmw.cloudadoption.vehicleorder.control.VehicleOrderLoadGenerator;
+import com.bmw.cloudadoption.vehicleorder.entity.LoadGeneratorConfig;
+import com.bmw.cloudadoption.vehicleorder.entity.LoadGeneratorReport;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+@ApplicationScoped
+@Path(LoadGeneratorResource.ENTITY_PATH)
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "Load Generator API", description = "This REST API generates synthetic Vehicle orders on the backing Kafka topic")
+public class LoadGeneratorResource {
+
+    public static final String ENTITY_PATH = "load-generator";
+
+    @Inject
+    VehicleOrderLoadGenerator loadGenerator;
+
+    // the generator writes to the real topic, so it has to be enabled explicitly
+    @ConfigProperty(name = "vehicleorder.load-generator.enabled", defaultValue = "false")
+    boolean enabled;
+
+    /**
+     * Starts generating vehicle orders.
+     *
+     * @param config shape of the load, defaults are used for missing
+     * properties
+     * @return Report of the started run
+     */
+    @POST
+    @Operation(operationId = "startLoadGenerator", summary = "start generating synthetic VehicleOrder records")
+    @APIResponses(value = {
+        @APIResponse(
+                responseCode = "202",
+                description = "Load generator started.",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = LoadGeneratorReport.class))),
+        @APIResponse(
+                responseCode = "400",
+                description = "Invalid load shape."),
+        @APIResponse(
+                responseCode = "403",
+                description = "Load generator is disabled."),
+        @APIResponse(
+                responseCode = "409",
+                description = "Load generator is already running.")})
+    public Response start(LoadGeneratorConfig config) {
+        if (!enabled) {
+            return Response.status(Response.Status.FORBIDDEN).build();
+        }
+        try {
+            return Response.accepted(loadGenerator.start(config != null ? config : new LoadGeneratorConfig())).build();
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).type(MediaType.TEXT_PLAIN).build();
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).type(MediaType.TEXT_PLAIN).build();
+        }
+    }
+
+    /**
+     * Get the progress, throughput and latency of the current or last run.
+     *
+     * @return Report of the run, otherwise not found response
+     */
+    @GET
+    @Operation(operationId = "getLoadGeneratorReport", summary = "get the report of the current or last load generator run")
+    @APIResponses(value = {
+        @APIResponse(
+                responseCode = "200",
+                description = "Report of the run.",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = LoadGeneratorReport.class))),
+        @APIResponse(
+                responseCode = "404",
+                description = "No run yet.")})
+    public Response report() {
+        LoadGeneratorReport report = loadGenerator.report();
+        return report != null ? Response.ok(report).build() : Response.status(Response.Status.NOT_FOUND).build();
+    }
+
+    /**
+     * Stops the current run.
+     *
+     * @return Report of the stopped run, otherwise not found response
+     */
+    @DELETE
+    @Operation(operationId = "stopLoadGenerator", summary = "stop the current load generator run")
+    @APIResponses(value = {
+        @APIResponse(
+                responseCode = "200",
+                description = "Report of the stopped run.",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = LoadGeneratorReport.class))),
+        @APIResponse(
+                responseCode = "404",
+                description = "No run yet.")})
+    public Response stop() {
+        LoadGeneratorReport report = loadGenerator.stop();
+        return report != null ? Response.ok(report).build() : Response.status(Response.Status.NOT_FOUND).build();
+    }
+}
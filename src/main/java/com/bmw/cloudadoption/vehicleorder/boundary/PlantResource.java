@@ -0,0 +1,62 @@
+package com.bmw.cloudadoption.vehicleorder.boundary;
+
+import com.bmw.cloudadoption.vehicleorder.control.VehicleOrderInteractiveQueries;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+import org.jboss.resteasy.annotations.GZIP;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+
+@ApplicationScoped
+@Path(PlantResource.ENTITY_PATH)
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "Plant API", description = "This REST API enables plant-level queries on Vehicle order resources")
+public class PlantResource {
+
+    public static final String ENTITY_PATH = "plant";
+
+    @Inject
+    VehicleOrderInteractiveQueries interactiveQueries;
+
+    /**
+     * Get all orders of a plant. The orders are partitioned by plant, so they
+     * are read from the single instance hosting the plant.
+     *
+     * @param plantId of the plant
+     * @param localOnly if true, only return local data, if false, the request
+     * is routed to the instance hosting the plant
+     * @return List of all orders with an OrderPerPlant or an assembly line in
+     * the plant
+     */
+    @GET
+    @Path("{plantId}/orders")
+    @Produces({MediaType.APPLICATION_JSON, ResourceBase.APPLICATION_VEHICLE_ORDER_BINARY})
+    @GZIP
+    @Operation(operationId = "getPlantVehicleOrders", summary = "get all VehicleOrder entries of a plant")
+    @APIResponses(value = {
+        @APIResponse(
+                responseCode = "200",
+                description = "All entries for the requested plant.",
+                content = @Content(mediaType = "application/json",
+                        schema = @Schema(type = SchemaType.ARRAY, implementation = VehicleOrder.class)))})
+    public CompletionStage<List<VehicleOrder>> getOrders(@PathParam("plantId") String plantId, @QueryParam("local") boolean localOnly) {
+        return interactiveQueries.getByPlant(plantId, localOnly);
+    }
+}
@@ -0,0 +1,37 @@
+package com.bmw.cloudadoption.vehicleorder.boundary;
+
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import org.eclipse.microprofile.rest.client.annotation.RegisterClientHeaders;
+import org.eclipse.microprofile.rest.client.annotation.RegisterProvider;
+import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+
+@Path(PlantResource.ENTITY_PATH)
+@RegisterRestClient
+// binary between instances, JSON from instances without the binary format
+@Produces({ResourceBase.APPLICATION_VEHICLE_ORDER_BINARY, ResourceBase.APPLICATION_JSON_FALLBACK})
+@RegisterProvider(VehicleOrderBinaryProvider.class)
+@RegisterClientHeaders
+public interface PlantService {
+
+    /**
+     * Used to fetch all orders of a plant from the databackend instance
+     * hosting the plant.
+     *
+     * @param plantId of the plant
+     * @param localOnly always true since the called instance hosts the plant
+     * @return all orders of the plant
+     */
+    @GET
+    @Path("{plantId}/orders")
+    CompletionStage<List<VehicleOrder>> getOrders(@PathParam("plantId") String plantId, @QueryParam("local") boolean localOnly);
+}
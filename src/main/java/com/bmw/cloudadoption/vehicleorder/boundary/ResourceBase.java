@@ -9,7 +9,7 @@ import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 
-import java.net.URI;
+import java.util.concurrent.CompletionStage;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -29,6 +29,23 @@ public abstract class ResourceBase<T extends EntityBase> {
 
     protected static final String SLASH = "/";
 
+    /**
+     * Media type for newline-delimited JSON, used to stream entities.
+     */
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    /**
+     * Media type for the binary format of the entities, used between
+     * instances.
+     */
+    public static final String APPLICATION_VEHICLE_ORDER_BINARY = "application/x-vehicleorder-binary";
+
+    /**
+     * Accepted by the rest-clients of the other instances, binary is preferred
+     * and JSON is the fallback for instances without the binary format.
+     */
+    public static final String APPLICATION_JSON_FALLBACK = MediaType.APPLICATION_JSON + ";q=0.5";
+
     /**
      * Deletes a entity in the backing topic via its key.
      *
@@ -50,7 +67,7 @@ public abstract class ResourceBase<T extends EntityBase> {
                 )
             }
     )
-    public abstract Response deleteEntry(@PathParam("key") String key);
+    public abstract CompletionStage<Response> deleteEntry(@PathParam("key") String key);
 
     /**
      * Creates or overwrites the given entity in the backing topic.
@@ -75,24 +92,5 @@ public abstract class ResourceBase<T extends EntityBase> {
                 )
             }
     )
-    public abstract Response postEntry(T entity);
-
-    /**
-     * Updates the given entity by deleting it by its key and then creating it
-     * with its new state.
-     *
-     * @param entity wrapped entity to be updated
-     * @param entityPath URI path for this entity
-     * @return Response 204
-     */
-    public Response updateGenericEntry(T entity, String entityPath) {
-        boolean successful = deleteEntry(entity.getKey()).getStatus() == 204;
-        if (successful) {
-            successful = postEntry(entity).getStatus() == 201;
-        }
-        // If both operations, delete and create, were successful, then the whole operation is successful
-        Response.ResponseBuilder response = successful
-                ? Response.created(URI.create(entityPath + SLASH + entity.getKey())) : Response.status(Response.Status.NOT_ACCEPTABLE);
-        return response.header("key", entity.getKey()).build();
-    }
+    public abstract CompletionStage<Response> postEntry(T entity);
 }
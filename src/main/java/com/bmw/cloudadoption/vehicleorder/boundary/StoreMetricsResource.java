@@ -0,0 +1,51 @@
+package com.bmw.cloudadoption.vehicleorder.boundary;
+
+import com.bmw.cloudadoption.vehicleorder.control.QueryableStores;
+import com.bmw.cloudadoption.vehicleorder.entity.StoreMetric;
+
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.enums.SchemaType;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import java.util.List;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+@ApplicationScoped
+@Path(StoreMetricsResource.ENTITY_PATH)
+@Produces(MediaType.APPLICATION_JSON)
+@Tag(name = "State-Store API", description = "This REST API exposes metrics of the local state-stores of this instance")
+public class StoreMetricsResource {
+
+    public static final String ENTITY_PATH = "store-metrics";
+
+    @Inject
+    QueryableStores queryableStores;
+
+    /**
+     * Get the RocksDB metrics of the local state-stores, e.g. block cache and
+     * memtable usage.
+     *
+     * @return Metrics per store and task
+     */
+    @GET
+    @Operation(operationId = "getStoreMetrics", summary = "get the RocksDB metrics of the local state-stores")
+    @APIResponses(value = {
+        @APIResponse(
+                responseCode = "200",
+                description = "RocksDB metrics per store and task.",
+                content = @Content(mediaType = "application/json",
+                        schema = @Schema(type = SchemaType.ARRAY, implementation = StoreMetric.class)))})
+    public List<StoreMetric> getStoreMetrics() {
+        return queryableStores.rocksDbMetrics();
+    }
+}
@@ -0,0 +1,47 @@
+package com.bmw.cloudadoption.vehicleorder.boundary;
+
+import com.bmw.cloudadoption.vehicleorder.control.QueryableStores;
+import com.bmw.cloudadoption.vehicleorder.control.StoreRestoreListener;
+import com.bmw.cloudadoption.vehicleorder.control.StreamsStateListener;
+
+import org.apache.kafka.streams.KafkaStreams;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Ready while kafka-streams is RUNNING, or REBALANCING without any active
+ * task of this instance restoring its stores. A rebalance of one instance
+ * affects the whole group, so marking every instance unready during it would
+ * take the whole service out of routing, only the restoring instances are.
+ * Requests arriving at a store that is still restoring get a 503 from
+ * {@link QueryableStores}. Not ready once kafka-streams is shutting down,
+ * stopped or failed.
+ */
+@Readiness
+@ApplicationScoped
+public class StoreReadinessCheck implements HealthCheck {
+
+    private static final String NAME = "State-stores queryable";
+
+    @Inject
+    StreamsStateListener streamsStateListener;
+
+    @Inject
+    StoreRestoreListener storeRestoreListener;
+
+    @Override
+    public HealthCheckResponse call() {
+        KafkaStreams.State state = streamsStateListener.getState();
+        int restoringPartitions = storeRestoreListener.getRestoringPartitions();
+        return HealthCheckResponse.named(NAME)
+                .status(state == KafkaStreams.State.RUNNING
+                        || (state == KafkaStreams.State.REBALANCING && restoringPartitions == 0))
+                .withData("state", state.name())
+                .withData("restoringPartitions", restoringPartitions)
+                .build();
+    }
+}
@@ -0,0 +1,26 @@
+package com.bmw.cloudadoption.vehicleorder.boundary;
+
+import com.bmw.cloudadoption.vehicleorder.control.StoreUnavailableException;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Maps an unavailable state-store to {@code 503 Service Unavailable}, so
+ * clients and other instances retry later or elsewhere.
+ */
+@Provider
+public class StoreUnavailableExceptionMapper implements ExceptionMapper<StoreUnavailableException> {
+
+    // seconds after which a retry is expected to succeed
+    private static final String RETRY_AFTER = "1";
+
+    @Override
+    public Response toResponse(StoreUnavailableException exception) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER)
+                .build();
+    }
+}
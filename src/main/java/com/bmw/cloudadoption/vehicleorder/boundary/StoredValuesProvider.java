@@ -0,0 +1,131 @@
+package com.bmw.cloudadoption.vehicleorder.boundary;
+
+import com.bmw.cloudadoption.vehicleorder.control.StoredValues;
+import com.bmw.cloudadoption.vehicleorder.control.serdes.VehicleOrderBinaryDeserializer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Reads and writes {@link StoredValues} as JSON or in the binary wire format
+ * {@value ResourceBase#APPLICATION_VEHICLE_ORDER_BINARY}. Stored values are
+ * copied to the body as they are, only binary records written as JSON have to
+ * be converted. The binary wire format takes JSON records as well, so it
+ * never needs a conversion.
+ * <p>
+ * Binary records are converted with the Jackson mapper of the other
+ * endpoints, so the JSON looks the same. With the store value format json
+ * the stored JSON-B bytes are copied as they are, {@code null} fields are
+ * omitted there.
+ */
+@Provider
+@Produces({MediaType.APPLICATION_JSON, ResourceBase.APPLICATION_VEHICLE_ORDER_BINARY})
+@Consumes({MediaType.APPLICATION_JSON, ResourceBase.APPLICATION_VEHICLE_ORDER_BINARY})
+public class StoredValuesProvider implements MessageBodyReader<StoredValues>, MessageBodyWriter<StoredValues> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final VehicleOrderBinaryDeserializer deserializer = new VehicleOrderBinaryDeserializer();
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return StoredValues.class.equals(type);
+    }
+
+    @Override
+    public void writeTo(StoredValues storedValues, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        if (isBinary(mediaType)) {
+            DataOutputStream out = new DataOutputStream(entityStream);
+            for (byte[] value : storedValues.getValues()) {
+                VehicleOrderBinaryProvider.writeFrame(out, value);
+            }
+            out.flush();
+            return;
+        }
+
+        if (!storedValues.isSingle()) {
+            entityStream.write('[');
+        }
+        boolean first = true;
+        for (byte[] value : storedValues.getValues()) {
+            if (!first) {
+                entityStream.write(',');
+            }
+            entityStream.write(json(value));
+            first = false;
+        }
+        if (!storedValues.isSingle()) {
+            entityStream.write(']');
+        }
+    }
+
+    private byte[] json(byte[] value) throws IOException {
+        return VehicleOrderBinaryDeserializer.isBinary(value)
+                ? objectMapper.writeValueAsBytes(deserializer.deserialize(null, value))
+                : value;
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return StoredValues.class.equals(type);
+    }
+
+    @Override
+    public StoredValues readFrom(Class<StoredValues> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        List<byte[]> values = new ArrayList<>();
+        if (isBinary(mediaType)) {
+            DataInputStream in = new DataInputStream(entityStream);
+            byte[] value;
+            while ((value = VehicleOrderBinaryProvider.readFrame(in)) != null) {
+                values.add(value);
+            }
+            return StoredValues.list(values);
+        }
+
+        // instances without the binary format answer with a JSON array, its elements are cut out as they are
+        byte[] json = entityStream.readAllBytes();
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of stored values");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                int start = (int) parser.getTokenLocation().getByteOffset();
+                parser.skipChildren();
+                int end = (int) parser.getCurrentLocation().getByteOffset();
+                values.add(Arrays.copyOfRange(json, start, end));
+            }
+        }
+        return StoredValues.list(values);
+    }
+
+    private static boolean isBinary(MediaType mediaType) {
+        return mediaType.isCompatible(MediaType.valueOf(ResourceBase.APPLICATION_VEHICLE_ORDER_BINARY));
+    }
+}
@@ -0,0 +1,129 @@
+package com.bmw.cloudadoption.vehicleorder.boundary;
+
+import com.bmw.cloudadoption.vehicleorder.control.serdes.VehicleOrderBinaryDeserializer;
+import com.bmw.cloudadoption.vehicleorder.control.serdes.VehicleOrderBinarySerializer;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Reads and writes vehicle orders in the binary wire format
+ * {@value ResourceBase#APPLICATION_VEHICLE_ORDER_BINARY}, used between
+ * instances. The body is a sequence of records in the state-store format of
+ * {@link VehicleOrderBinarySerializer}, each prefixed with its length. A
+ * single order is a sequence of one record.
+ */
+@Provider
+@Produces(ResourceBase.APPLICATION_VEHICLE_ORDER_BINARY)
+@Consumes(ResourceBase.APPLICATION_VEHICLE_ORDER_BINARY)
+public class VehicleOrderBinaryProvider implements MessageBodyReader<Object>, MessageBodyWriter<Object> {
+
+    private final VehicleOrderBinarySerializer serializer = new VehicleOrderBinarySerializer();
+    private final VehicleOrderBinaryDeserializer deserializer = new VehicleOrderBinaryDeserializer();
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        // lists returned inside a Response have lost their element type
+        return VehicleOrder.class.equals(type) || Collection.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void writeTo(Object entity, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(entityStream);
+        if (entity instanceof VehicleOrder) {
+            writeRecord(out, (VehicleOrder) entity);
+        } else {
+            for (Object vehicleOrder : (Collection<?>) entity) {
+                writeRecord(out, (VehicleOrder) vehicleOrder);
+            }
+        }
+        out.flush();
+    }
+
+    private void writeRecord(DataOutputStream out, VehicleOrder vehicleOrder) throws IOException {
+        writeFrame(out, serializer.serialize(null, vehicleOrder));
+    }
+
+    /**
+     * Writes one record prefixed with its length.
+     *
+     * @param out stream of the body
+     * @param data serialized record
+     * @throws IOException if writing fails
+     */
+    static void writeFrame(DataOutputStream out, byte[] data) throws IOException {
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        if (VehicleOrder.class.equals(type)) {
+            return true;
+        }
+        return type.isAssignableFrom(List.class)
+                && genericType instanceof ParameterizedType
+                && VehicleOrder.class.equals(((ParameterizedType) genericType).getActualTypeArguments()[0]);
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        DataInputStream in = new DataInputStream(entityStream);
+        List<VehicleOrder> vehicleOrders = new ArrayList<>();
+        VehicleOrder vehicleOrder;
+        while ((vehicleOrder = readRecord(in)) != null) {
+            vehicleOrders.add(vehicleOrder);
+        }
+        if (VehicleOrder.class.equals(type)) {
+            return vehicleOrders.isEmpty() ? null : vehicleOrders.get(0);
+        }
+        return vehicleOrders;
+    }
+
+    private VehicleOrder readRecord(DataInputStream in) throws IOException {
+        byte[] data = readFrame(in);
+        return data != null ? deserializer.deserialize(null, data) : null;
+    }
+
+    /**
+     * Reads one record prefixed with its length.
+     *
+     * @param in stream of the body
+     * @return serialized record, {@code null} at the end of the body
+     * @throws IOException if reading fails or the body is truncated
+     */
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        int length = first << 24 | in.readUnsignedByte() << 16 | in.readUnsignedByte() << 8 | in.readUnsignedByte();
+        if (length < 0) {
+            throw new EOFException("Invalid record length " + length);
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return data;
+    }
+}
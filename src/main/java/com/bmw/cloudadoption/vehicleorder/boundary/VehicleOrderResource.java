@@ -1,9 +1,27 @@
 package com.bmw.cloudadoption.vehicleorder.boundary;
 
+import com.bmw.cloudadoption.vehicleorder.control.ChangeFeedFilter;
+import com.bmw.cloudadoption.vehicleorder.control.ChangeFeedPosition;
+import com.bmw.cloudadoption.vehicleorder.control.ConditionalUpsertProcessor;
+import com.bmw.cloudadoption.vehicleorder.control.OrderCountDimension;
+import com.bmw.cloudadoption.vehicleorder.control.StoredValues;
+import com.bmw.cloudadoption.vehicleorder.control.VehicleOrderChangeFeed;
 import com.bmw.cloudadoption.vehicleorder.control.VehicleOrderInteractiveQueries;
+import com.bmw.cloudadoption.vehicleorder.control.VehicleOrderNearCache;
+import com.bmw.cloudadoption.vehicleorder.control.WriteOutcome;
+import com.bmw.cloudadoption.vehicleorder.entity.NearCacheStats;
+import com.bmw.cloudadoption.vehicleorder.entity.OrderCount;
+import com.bmw.cloudadoption.vehicleorder.entity.RecordPosition;
 import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrderChange;
+import com.bmw.cloudadoption.vehicleorder.entity.WriteResult;
 
-import io.smallrye.reactive.messaging.kafka.OutgoingKafkaRecordMetadata;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.openapi.annotations.OpenAPIDefinition;
 import org.eclipse.microprofile.openapi.annotations.Operation;
@@ -14,27 +32,44 @@ import org.eclipse.microprofile.openapi.annotations.media.Schema;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
 import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.eclipse.microprofile.openapi.annotations.tags.Tag;
-import org.eclipse.microprofile.reactive.messaging.Channel;
-import org.eclipse.microprofile.reactive.messaging.Emitter;
-import org.eclipse.microprofile.reactive.messaging.Message;
-import org.eclipse.microprofile.reactive.messaging.Metadata;
+import org.jboss.resteasy.annotations.GZIP;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
 
 @ApplicationScoped
 @Path(VehicleOrderResource.ENTITY_PATH)
@@ -49,6 +84,17 @@ import javax.ws.rs.core.Response;
 public class VehicleOrderResource extends ResourceBase<VehicleOrder> {
 
     public static final String ENTITY_PATH = "vehicleorder";
+    public static final String MGET_PATH = "_mget";
+    public static final String COUNTS_PATH = "_counts";
+    public static final String NEAR_CACHE_PATH = "_near-cache";
+    public static final String CHANGES_PATH = "_changes";
+    public static final String VERSION_PATH = "_version";
+    public static final String OUTCOMES_PATH = "_outcomes";
+    private static final String BULK_PATH = "_bulk";
+
+    private static final String NEXT_CURSOR = "next-cursor";
+
+    private static final String KAFKA_CHANNEL = "kafka";
 
     @Inject
     VehicleOrderInteractiveQueries interactiveQueries;
@@ -56,76 +102,494 @@ public class VehicleOrderResource extends ResourceBase<VehicleOrder> {
     @ConfigProperty(name = "KAFKA_VEHICLE_ORDER_TOPIC")
     String entityTopic;
 
+    // events queued per change feed client, a client falling further behind is disconnected and resumes
+    @ConfigProperty(name = "vehicleorder.change-feed.subscriber-queue-size", defaultValue = "1000")
+    int changeFeedQueueSize;
+
+    @Inject
+    ObjectMapper objectMapper;
+
     @Inject
-    @Channel("kafka")
-    Emitter<VehicleOrder> emitter;
+    VehicleOrderNearCache nearCache;
+
+    @Inject
+    VehicleOrderChangeFeed changeFeed;
+
+    // number of records of a batch that are sent before waiting for their acknowledgement
+    @ConfigProperty(name = "vehicleorder.bulk.window-size", defaultValue = "1000")
+    int bulkWindowSize;
 
     /**
      * Get individual entity by key.
      *
      * @param key to search for
+     * @param maxLag offset lag allowed for reads from standby replicas and
+     * restoring stores, negative to read only from the active instance, the
+     * configured default if missing
+     * @param localOnly if true, only read the local state-store within the lag
+     * @param request to evaluate {@code If-None-Match} against the version of
+     * the entity
      * @return Response containing the entity, otherwise not found response
      */
     @GET
     @Path("{key}")
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_VEHICLE_ORDER_BINARY})
     @Operation(operationId = "getVehicleOrder", summary = "get single VehicleOrder entry")
     @APIResponses(value = {
         @APIResponse(
                 responseCode = "200",
                 description = "Entry for the requested key.",
                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = VehicleOrder.class))),
+        @APIResponse(
+                responseCode = "304",
+                description = "Entry not modified since the version in If-None-Match."),
         @APIResponse(
                 responseCode = "204",
-                description = "Entry for requested key not found.")})
-    public Response getEntry(@PathParam("key") String key) {
-        VehicleOrder entry = interactiveQueries.getEntry(key);
-        Response.ResponseBuilder response = entry != null ? Response.ok(entry) : Response.status(Response.Status.NOT_FOUND);
-        return response.build();
+                description = "Entry for requested key not found."),
+        @APIResponse(
+                responseCode = "503",
+                description = "No instance can serve the key within the allowed lag.")})
+    public Response getEntry(@PathParam("key") String key, @QueryParam("maxLag") Long maxLag,
+            @QueryParam("local") boolean localOnly, @Context Request request) {
+        if (maxLag == null) {
+            // keys of this instance are answered with the stored bytes
+            StoredValues stored = interactiveQueries.getLocalStoredEntry(key);
+            if (stored != null) {
+                return stored.getValues().isEmpty()
+                        ? Response.status(Response.Status.NOT_FOUND).build()
+                        : conditional(request, new EntityTag(stored.version()), () -> Response.ok(stored)).build();
+            }
+        }
+        VehicleOrder entry = localOnly && maxLag != null
+                ? interactiveQueries.getLocalEntry(key, maxLag)
+                : interactiveQueries.getEntry(key, maxLag);
+        if (entry == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return conditional(request, new EntityTag(interactiveQueries.version(entry)), () -> Response.ok(entry)).build();
+    }
+
+    /**
+     * Answers with 304 Not Modified if the client already has the given
+     * version, otherwise with the result of the query. Both carry the version
+     * as ETag.
+     */
+    private static Response.ResponseBuilder conditional(Request request, EntityTag version, Supplier<Response.ResponseBuilder> query) {
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(version);
+        return (notModified != null ? notModified : query.get()).tag(version);
+    }
+
+    /**
+     * Like {@link #conditional(Request, EntityTag, Supplier)} with the version
+     * vector of all orders. The version is taken before the query, a change in
+     * between only costs another full transfer. The parameters selecting the
+     * orders are part of the version, so e.g. two pages never share an ETag.
+     */
+    private CompletionStage<Response> conditionalOnVersionVector(Request request, boolean localOnly, String selection,
+            Supplier<Response.ResponseBuilder> query) {
+        return interactiveQueries.supplyAsync(() -> conditional(request,
+                new EntityTag(StoredValues.version(interactiveQueries.getVersionVector(localOnly) + selection)), query).build());
     }
 
     /**
-     * Get all entities of this type.
+     * Get the version vector of all entities, the offset of the last change
+     * applied per partition. The ETag of getAll is derived from it.
      *
+     * @param localOnly if true, only return the entries of the local
+     * partitions
+     * @return entries {@code partition:offset} separated by commas
+     */
+    @GET
+    @Path(VERSION_PATH)
+    @Produces(MediaType.TEXT_PLAIN)
+    @Operation(operationId = "getVehicleOrderVersion", summary = "get the version vector of all VehicleOrder entries")
+    @APIResponses(value = {
+        @APIResponse(
+                responseCode = "200",
+                description = "Version vector of all entries.",
+                content = @Content(mediaType = MediaType.TEXT_PLAIN, schema = @Schema(implementation = String.class)))})
+    public CompletionStage<String> getVersion(@QueryParam("local") boolean localOnly) {
+        return interactiveQueries.supplyAsync(() -> interactiveQueries.getVersionVector(localOnly));
+    }
+
+    /**
+     * Waits for the outcomes of records written to the partitions of this
+     * instance, called by the instances the records have been written by.
+     *
+     * @param positions of the records
+     * @param timeout maximum time to wait in milliseconds
+     * @return outcome of every record, in the order of the positions
+     */
+    @POST
+    @Path(OUTCOMES_PATH)
+    @Operation(operationId = "getVehicleOrderWriteOutcomes", summary = "wait for the outcomes of written VehicleOrder records")
+    @APIResponses(value = {
+        @APIResponse(
+                responseCode = "200",
+                description = "Outcome per record, UNKNOWN if it has not been processed in time.",
+                content = @Content(mediaType = "application/json",
+                        schema = @Schema(type = SchemaType.ARRAY, implementation = WriteOutcome.class)))})
+    public CompletionStage<List<WriteOutcome>> getOutcomes(List<RecordPosition> positions, @QueryParam("timeout") long timeout) {
+        return interactiveQueries.awaitLocalOutcomes(positions, timeout);
+    }
+
+    /**
+     * Get many entities by their keys, at most one request is sent to every
+     * other instance.
+     *
+     * @param keys to search for
      * @param localOnly if true, only return local data, if false, returns data
      * from all running instances
+     * @return List of the entities found, in the order of the keys
+     */
+    @POST
+    @Path(MGET_PATH)
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_VEHICLE_ORDER_BINARY})
+    @GZIP
+    @Operation(operationId = "getVehicleOrders", summary = "get many VehicleOrder entries by their keys")
+    @APIResponses(value = {
+        @APIResponse(
+                responseCode = "200",
+                description = "Entries found for the requested keys.",
+                content = @Content(mediaType = "application/json",
+                        schema = @Schema(type = SchemaType.ARRAY, implementation = VehicleOrder.class)))})
+    public CompletionStage<List<VehicleOrder>> getEntries(List<String> keys, @QueryParam("local") boolean localOnly) {
+        return interactiveQueries.getEntries(keys, localOnly);
+    }
+
+    /**
+     * Get the number of orders per group of the given dimension, e.g. per
+     * plant. The counts are maintained by the topology, so no order is read.
+     *
+     * @param dimension the orders are counted by
+     * @param localOnly if true, only return local data, if false, returns data
+     * from all running instances
+     * @return Counts per group
+     */
+    @GET
+    @Path(COUNTS_PATH)
+    @Operation(operationId = "getVehicleOrderCounts", summary = "get the number of VehicleOrder entries per plant, assembly line or planned day")
+    @APIResponses(value = {
+        @APIResponse(
+                responseCode = "200",
+                description = "Number of entries per group.",
+                content = @Content(mediaType = "application/json",
+                        schema = @Schema(type = SchemaType.ARRAY, implementation = OrderCount.class))),
+        @APIResponse(
+                responseCode = "400",
+                description = "Missing dimension.")})
+    public CompletionStage<Response> getOrderCounts(@QueryParam("by") OrderCountDimension dimension,
+            @QueryParam("local") boolean localOnly) {
+        if (dimension == null) {
+            return CompletableFuture.completedFuture(Response.status(Response.Status.BAD_REQUEST).build());
+        }
+        return interactiveQueries.supplyAsync(() -> Response.ok(interactiveQueries.getOrderCounts(dimension, localOnly)).build());
+    }
+
+    /**
+     * Get the statistics of the near cache for orders read from other
+     * instances.
+     *
+     * @return Hit, miss and eviction statistics of this instance
+     */
+    @GET
+    @Path(NEAR_CACHE_PATH)
+    @Operation(operationId = "getVehicleOrderNearCacheStats", summary = "get the statistics of the near cache of this instance")
+    @APIResponses(value = {
+        @APIResponse(
+                responseCode = "200",
+                description = "Statistics of the near cache.",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = NearCacheStats.class)))})
+    public NearCacheStats getNearCacheStats() {
+        return nearCache.stats();
+    }
+
+    /**
+     * Streams the changes of the entities as server-sent events, as they are
+     * applied to the state-stores. Events are named {@code upsert} and
+     * {@code delete} and carry the change as JSON, their id is the position to
+     * resume from. A new subscription starts with a {@code position} event. If
+     * the changes since the resume position are no longer available, a
+     * {@code reset} event tells the client to reload all entities.
+     *
+     * @param eventSink of the client
+     * @param sse to build the events
+     * @param localOnly if true, only stream the changes of this instance
+     * @param plantId only orders with an OrderPerPlant or assembly line in this plant
+     * @param vehicleId only orders of this vehicle model
+     * @param since position to resume from, if there is no Last-Event-ID
+     * @param lastEventId position to resume from, sent by reconnecting clients
+     */
+    @GET
+    @Path(CHANGES_PATH)
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @Operation(operationId = "streamVehicleOrderChanges", summary = "stream the changes of VehicleOrder entries as server-sent events")
+    @APIResponses(value = {
+        @APIResponse(
+                responseCode = "200",
+                description = "Changes of the entries, as they are applied.",
+                content = @Content(mediaType = MediaType.SERVER_SENT_EVENTS,
+                        schema = @Schema(implementation = VehicleOrderChange.class))),
+        @APIResponse(
+                responseCode = "400",
+                description = "Invalid resume position.")})
+    public void streamChanges(@Context SseEventSink eventSink, @Context Sse sse, @QueryParam("local") boolean localOnly,
+            @QueryParam("plantId") String plantId, @QueryParam("vehicleId") String vehicleId, @QueryParam("since") String since,
+            @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId) {
+        String resumeFrom = lastEventId != null ? lastEventId : since;
+        ChangeFeedPosition position;
+        try {
+            position = resumeFrom != null ? ChangeFeedPosition.parse(resumeFrom) : null;
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage(), e);
+        }
+        ChangeFeedSink sink = new ChangeFeedSink(eventSink, sse, position, changeFeedQueueSize, changeFeed::execute);
+        sink.setCancel(interactiveQueries.subscribeChanges(position, new ChangeFeedFilter(plantId, vehicleId), localOnly, sink));
+    }
+
+    /**
+     * Get all entities of this type. If a limit is given, only one page of
+     * entities ordered by their key is returned and the key to continue with is
+     * returned in the {@code next-cursor} header. If a vehicleId is given, only
+     * the entities of this vehicle model are returned via its index. If a
+     * planned start or end date range is given, only the entities with a date
+     * in the range are returned via the date index, sorted by date. Several
+     * filters are combined, only entities matching all of them are returned.
+     * Filters cannot be combined with a page.
+     *
+     * @param localOnly if true, only return local data, if false, returns data
+     * from all running instances
+     * @param after cursor, only entities with a greater key are returned
+     * @param limit maximum number of entities in the page
+     * @param vehicleId vehicle model of the entities
+     * @param startFrom first planned start date (ISO date)
+     * @param startTo last planned start date (ISO date)
+     * @param endFrom first planned end date (ISO date)
+     * @param endTo last planned end date (ISO date)
+     * @param request to evaluate {@code If-None-Match} against the version
+     * vector of all entities
      * @return List of all available entities of this type
      */
     @GET
+    @Produces({MediaType.APPLICATION_JSON, APPLICATION_VEHICLE_ORDER_BINARY})
+    @GZIP
     @Operation(operationId = "getAllVehicleOrder", summary = "get all VehicleOrder entries")
     @APIResponses(value = {
         @APIResponse(
                 responseCode = "200",
                 description = "All entries for the requested entity.",
                 content = @Content(mediaType = "application/json",
-                        schema = @Schema(type = SchemaType.ARRAY, implementation = VehicleOrder.class)))})
-    public CompletionStage<List<VehicleOrder>> getAll(@QueryParam("local") boolean localOnly) {
-        return CompletableFuture.supplyAsync(() -> interactiveQueries.getAll(localOnly));
+                        schema = @Schema(type = SchemaType.ARRAY, implementation = VehicleOrder.class))),
+        @APIResponse(
+                responseCode = "304",
+                description = "No entry modified since the version in If-None-Match."),
+        @APIResponse(
+                responseCode = "400",
+                description = "Invalid limit or date, or filters combined with a page.")})
+    public CompletionStage<Response> getAll(@QueryParam("local") boolean localOnly, @QueryParam("after") String after,
+            @QueryParam("limit") Integer limit, @QueryParam("vehicleId") String vehicleId,
+            @QueryParam("startFrom") String startFrom, @QueryParam("startTo") String startTo,
+            @QueryParam("endFrom") String endFrom, @QueryParam("endTo") String endTo, @Context Request request) {
+        if (vehicleId != null || startFrom != null || startTo != null || endFrom != null || endTo != null) {
+            if (limit != null || after != null) {
+                return CompletableFuture.completedFuture(Response.status(Response.Status.BAD_REQUEST).build());
+            }
+            LocalDate startFromDate = parseDate(startFrom);
+            LocalDate startToDate = parseDate(startTo);
+            LocalDate endFromDate = parseDate(endFrom);
+            LocalDate endToDate = parseDate(endTo);
+            String selection = "?vehicleId=" + vehicleId + "&startFrom=" + startFromDate + "&startTo=" + startToDate
+                    + "&endFrom=" + endFromDate + "&endTo=" + endToDate;
+            return conditionalOnVersionVector(request, localOnly, selection, () -> Response.ok(interactiveQueries.getFiltered(
+                    vehicleId, startFromDate, startToDate, endFromDate, endToDate, localOnly)));
+        }
+        if (limit == null) {
+            return conditionalOnVersionVector(request, localOnly, "", () -> Response.ok(interactiveQueries.getAllStored(localOnly)));
+        }
+        if (limit <= 0) {
+            return CompletableFuture.completedFuture(Response.status(Response.Status.BAD_REQUEST).build());
+        }
+        return conditionalOnVersionVector(request, localOnly, "?after=" + after + "&limit=" + limit, () -> {
+            List<VehicleOrder> page = interactiveQueries.getPage(after, limit, localOnly);
+            Response.ResponseBuilder response = Response.ok(page);
+            if (page.size() == limit) {
+                response.header(NEXT_CURSOR, page.get(page.size() - 1).getKey());
+            }
+            return response;
+        });
+    }
+
+    private static LocalDate parseDate(String date) {
+        try {
+            return date != null ? LocalDate.parse(date) : null;
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Invalid ISO date: " + date, e);
+        }
+    }
+
+    /**
+     * Streams all entities of this type as newline-delimited JSON, one entity
+     * per line, without collecting them in memory first.
+     *
+     * @param localOnly if true, only return local data, if false, returns data
+     * from all running instances
+     * @return Response streaming all available entities of this type
+     */
+    @GET
+    @Produces(APPLICATION_NDJSON)
+    @Operation(operationId = "streamAllVehicleOrder", summary = "stream all VehicleOrder entries as NDJSON")
+    @APIResponses(value = {
+        @APIResponse(
+                responseCode = "200",
+                description = "All entries for the requested entity, one per line.",
+                content = @Content(mediaType = APPLICATION_NDJSON,
+                        schema = @Schema(implementation = VehicleOrder.class)))})
+    public Response streamAll(@QueryParam("local") boolean localOnly) {
+        StreamingOutput output = out -> interactiveQueries.streamAll(localOnly, out);
+        return Response.ok(output).build();
     }
 
     @Override
-    public Response postEntry(VehicleOrder entity) {
+    public CompletionStage<Response> postEntry(VehicleOrder entity) {
         // FE sends PUT and POST with UpdateEntityWrapper
         String entityKey = entity.getKey();
 
-        // Build metadata..
-        OutgoingKafkaRecordMetadata<String> metadata = OutgoingKafkaRecordMetadata.<String>builder()
-                .withKey(entityKey)
-                .withTopic(entityTopic)
-                .build();
-        // .. and send the record
-        emitter.send(Message.of(entity, Metadata.of(metadata)));
-        // Verify that our created or updated entity already made it back to our state store
-        Response.ResponseBuilder response = interactiveQueries.verifyEntryInStateStore(entityKey, entity)
-                ? Response.created(URI.create(ENTITY_PATH + SLASH + entityKey)) : Response.status(Response.Status.NOT_ACCEPTABLE);
-        return response.header("key", entityKey).build();
+        CompletionStage<Boolean> created = interactiveQueries.awaitEntryInStateStore(entityKey, entity, send(entity, null));
+        // Complete as soon as our created or updated entity made it back to our state store
+        return created.thenApply(successful -> {
+            Response.ResponseBuilder response = successful
+                    ? Response.created(URI.create(ENTITY_PATH + SLASH + entityKey)) : Response.status(Response.Status.NOT_ACCEPTABLE);
+            return response.header("key", entityKey).build();
+        });
+    }
+
+    /**
+     * Sends the entity to the backing topic, keyed by its key.
+     *
+     * @param entity to send
+     * @param condition version the current entity must have for the record to
+     * be applied, {@code null} to apply it unconditionally
+     * @return completes with the partition and offset of the record once the
+     * broker acknowledged it
+     */
+    private CompletionStage<RecordMetadata> send(VehicleOrder entity, String condition) {
+        Headers headers = new RecordHeaders();
+        if (condition != null) {
+            headers.add(ConditionalUpsertProcessor.IF_MATCH_HEADER, condition.getBytes(StandardCharsets.UTF_8));
+        }
+        return interactiveQueries.send(KAFKA_CHANNEL, new ProducerRecord<>(entityTopic, null, entity.getKey(), entity, headers));
+    }
+
+    /**
+     * Creates or overwrites all given entities. The records are sent without
+     * waiting for each other and the whole batch is confirmed against the state
+     * store at once.
+     *
+     * @param entities that should be created or updated
+     * @return Response containing the result per key
+     */
+    @POST
+    @Path(BULK_PATH)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Operation(operationId = "createVehicleOrders", summary = "create or update many VehicleOrder entries")
+    @APIResponses(value = {
+        @APIResponse(
+                responseCode = "200",
+                description = "Result per key, 201 if the entry was created, 406 if not.",
+                content = @Content(mediaType = "application/json",
+                        schema = @Schema(type = SchemaType.ARRAY, implementation = WriteResult.class)))})
+    public CompletionStage<Response> postEntries(List<VehicleOrder> entities) {
+        return writeEntries(entities);
     }
 
     /**
-     * Updates a entity by deleting it via its old key and creating it with the
-     * new state.
+     * Creates or overwrites all entities of the given newline-delimited JSON
+     * stream, see {@link #postEntries(List)}.
+     *
+     * @param body newline-delimited JSON, one entity per line
+     * @return Response containing the result per key
+     * @throws IOException if the body could not be read
+     */
+    @POST
+    @Path(BULK_PATH)
+    @Consumes(APPLICATION_NDJSON)
+    @Operation(operationId = "createVehicleOrdersNdjson", summary = "create or update many VehicleOrder entries from NDJSON")
+    @APIResponses(value = {
+        @APIResponse(
+                responseCode = "200",
+                description = "Result per key, 201 if the entry was created, 406 if not.",
+                content = @Content(mediaType = "application/json",
+                        schema = @Schema(type = SchemaType.ARRAY, implementation = WriteResult.class)))})
+    public CompletionStage<Response> postEntriesNdjson(InputStream body) throws IOException {
+        List<VehicleOrder> entities = new ArrayList<>();
+        try (MappingIterator<VehicleOrder> iterator = objectMapper.readerFor(VehicleOrder.class).readValues(body)) {
+            iterator.forEachRemaining(entities::add);
+        }
+        return writeEntries(entities);
+    }
+
+    private CompletionStage<Response> writeEntries(List<VehicleOrder> entities) {
+        // the last entity per key wins, just like in the topic
+        Map<String, VehicleOrder> entitiesByKey = new LinkedHashMap<>();
+        entities.forEach(entity -> entitiesByKey.put(entity.getKey(), entity));
+        Map<String, CompletableFuture<RecordMetadata>> acks = new LinkedHashMap<>();
+        entitiesByKey.keySet().forEach(key -> acks.put(key, new CompletableFuture<>()));
+        CompletionStage<Map<String, Boolean>> created = interactiveQueries.awaitEntriesInStateStore(entitiesByKey, acks);
+
+        // a send failing right away, e.g. on a full buffer, fails the records not acknowledged yet instead of the request
+        CompletableFuture.completedFuture(null)
+                .thenCompose(ignored -> sendWindows(new ArrayList<>(entitiesByKey.values()), 0, acks))
+                .whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        acks.values().forEach(ack -> ack.completeExceptionally(e));
+                    }
+                });
+        return created
+                .thenApply(results -> Response.ok(results.entrySet().stream()
+                .map(result -> new WriteResult(result.getKey(), result.getValue()
+                        ? Response.Status.CREATED.getStatusCode() : Response.Status.NOT_ACCEPTABLE.getStatusCode()))
+                .collect(Collectors.toList())).build());
+    }
+
+    /**
+     * Sends the entities in windows, every window is sent at once and the next
+     * window is sent as soon as the broker acknowledged or rejected every
+     * record of the previous one. This bounds the records in flight without
+     * waiting per record.
+     */
+    private CompletionStage<Void> sendWindows(List<VehicleOrder> entities, int from, Map<String, CompletableFuture<RecordMetadata>> acks) {
+        if (from >= entities.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int to = Math.min(from + bulkWindowSize, entities.size());
+        List<CompletableFuture<?>> window = new ArrayList<>(to - from);
+        for (VehicleOrder entity : entities.subList(from, to)) {
+            CompletableFuture<RecordMetadata> ack = acks.get(entity.getKey());
+            // a failed record is resolved as not written right away
+            send(entity, null).whenComplete((metadata, e) -> {
+                if (e != null) {
+                    ack.completeExceptionally(e);
+                } else {
+                    ack.complete(metadata);
+                }
+            });
+            window.add(ack.handle((ignored, e) -> null));
+        }
+        return CompletableFuture.allOf(window.toArray(CompletableFuture[]::new))
+                .thenCompose(ignored -> sendWindows(entities, to, acks));
+    }
+
+    /**
+     * Updates a entity with a single write of its new state, it is never
+     * missing in between. With an {@code If-Match} header, the topology only
+     * applies the write if the entity still has the given version, see
+     * {@link ConditionalUpsertProcessor}.
      *
      * @param entity that should be updated
-     * @return Response whether the entity was updated or not
+     * @param ifMatch ETag of the version the entity is expected to have,
+     * {@code *} for any version
+     * @return Response whether the entity was updated or not, with its new
+     * version as ETag
      */
     @PUT
     @Consumes(MediaType.APPLICATION_JSON)
@@ -136,15 +600,45 @@ public class VehicleOrderResource extends ResourceBase<VehicleOrder> {
                 responseCode = "201",
                 description = "Entry updated.",
                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = VehicleOrder.class))),
+        @APIResponse(
+                responseCode = "400",
+                description = "Invalid If-Match header."),
         @APIResponse(
                 responseCode = "406",
-                description = "Entry not updated.")})
-    public Response updateEntry(VehicleOrder entity) {
-        return updateGenericEntry(entity, ENTITY_PATH);
+                description = "Entry not updated."),
+        @APIResponse(
+                responseCode = "412",
+                description = "Entry does not have the version in If-Match.")})
+    public CompletionStage<Response> updateEntry(VehicleOrder entity, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch) {
+        String condition = ifMatch != null ? condition(ifMatch) : null;
+        String entityKey = entity.getKey();
+
+        CompletionStage<RecordMetadata> written = send(entity, condition);
+        CompletionStage<Boolean> updated = condition != null
+                ? interactiveQueries.awaitConditionalEntryInStateStore(entity, condition, written)
+                : interactiveQueries.awaitEntryInStateStore(entityKey, entity, written);
+        return updated.thenApply(successful -> {
+            Response.ResponseBuilder response = successful
+                    ? Response.created(URI.create(ENTITY_PATH + SLASH + entityKey)).tag(new EntityTag(interactiveQueries.version(entity)))
+                    : Response.status(Response.Status.NOT_ACCEPTABLE);
+            return response.header("key", entityKey).build();
+        });
+    }
+
+    private static String condition(String ifMatch) {
+        String condition = ifMatch.trim();
+        if (ConditionalUpsertProcessor.ANY.equals(condition)) {
+            return condition;
+        }
+        try {
+            return EntityTag.valueOf(condition).getValue();
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid If-Match: " + ifMatch, e);
+        }
     }
 
     @Override
-    public Response deleteEntry(String key) {
+    public CompletionStage<Response> deleteEntry(String key) {
         return interactiveQueries.deleteEntry(key, entityTopic, interactiveQueries);
     }
 
@@ -1,23 +1,37 @@
 package com.bmw.cloudadoption.vehicleorder.boundary;
 
+import com.bmw.cloudadoption.vehicleorder.control.OrderCountDimension;
+import com.bmw.cloudadoption.vehicleorder.control.StoredValues;
+import com.bmw.cloudadoption.vehicleorder.control.WriteOutcome;
+import com.bmw.cloudadoption.vehicleorder.entity.OrderCount;
+import com.bmw.cloudadoption.vehicleorder.entity.RecordPosition;
 import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
 
 import org.eclipse.microprofile.rest.client.annotation.RegisterClientHeaders;
+import org.eclipse.microprofile.rest.client.annotation.RegisterProvider;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+import org.reactivestreams.Publisher;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.concurrent.CompletionStage;
 
+import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.InboundSseEvent;
 
 @Path(VehicleOrderResource.ENTITY_PATH)
 @RegisterRestClient
-@Produces(MediaType.APPLICATION_JSON)
+// binary between instances, JSON from instances without the binary format
+@Produces({ResourceBase.APPLICATION_VEHICLE_ORDER_BINARY, ResourceBase.APPLICATION_JSON_FALLBACK})
+@RegisterProvider(VehicleOrderBinaryProvider.class)
+@RegisterProvider(StoredValuesProvider.class)
 @RegisterClientHeaders
 public interface VehicleOrderService {
 
@@ -31,6 +45,34 @@ public interface VehicleOrderService {
     @Path("{key}")
     VehicleOrder getEntry(@PathParam("key") String key);
 
+    /**
+     * Used to fetch an individual entry from the local, possibly stale
+     * state-store of another databackend instance.
+     *
+     * @param key that should be fetched
+     * @param maxLag allowed offset lag of the called instance
+     * @param localOnly always true, the called instance answers with 503 if it
+     * cannot serve the key within the lag
+     * @return entry for given key
+     */
+    @GET
+    @Path("{key}")
+    VehicleOrder getEntry(@PathParam("key") String key, @QueryParam("maxLag") long maxLag, @QueryParam("local") boolean localOnly);
+
+    /**
+     * Used to fetch many entries by their keys from another databackend
+     * instance.
+     *
+     * @param keys that should be fetched
+     * @param localOnly always true since the keys have already been grouped by
+     * the instance hosting them
+     * @return entries found for the given keys
+     */
+    @POST
+    @Path(VehicleOrderResource.MGET_PATH)
+    @Consumes(MediaType.APPLICATION_JSON)
+    CompletionStage<List<VehicleOrder>> getEntries(List<String> keys, @QueryParam("local") boolean localOnly);
+
     /**
      * Used to fetch all entries from another databackend instance.
      *
@@ -40,4 +82,140 @@ public interface VehicleOrderService {
      */
     @GET
     CompletionStage<List<VehicleOrder>> getAll(@QueryParam("local") boolean localOnly);
+
+    /**
+     * Used to fetch all entries from another databackend instance as they are
+     * stored, without deserializing them.
+     *
+     * @param localOnly always true since we just want the local data from the
+     * called instance
+     * @return all stored entries from the called instance
+     */
+    @GET
+    CompletionStage<StoredValues> getAllStored(@QueryParam("local") boolean localOnly);
+
+    /**
+     * Used to fetch all entries of a vehicle model from another databackend
+     * instance.
+     *
+     * @param vehicleId of the entries
+     * @param localOnly always true since we just want the local data from the
+     * called instance
+     * @return entries of the vehicle model from the called instance
+     */
+    @GET
+    CompletionStage<List<VehicleOrder>> getByVehicleId(@QueryParam("vehicleId") String vehicleId,
+            @QueryParam("local") boolean localOnly);
+
+    /**
+     * Used to fetch all entries with a planned start date in a range from
+     * another databackend instance.
+     *
+     * @param from first planned start date as ISO date, open if {@code null}
+     * @param to last planned start date as ISO date, open if {@code null}
+     * @param localOnly always true since we just want the local data from the
+     * called instance
+     * @return entries in the range from the called instance
+     */
+    @GET
+    CompletionStage<List<VehicleOrder>> getByPlannedStartDate(@QueryParam("startFrom") String from,
+            @QueryParam("startTo") String to, @QueryParam("local") boolean localOnly);
+
+    /**
+     * Used to fetch all entries with a planned end date in a range from another
+     * databackend instance.
+     *
+     * @param from first planned end date as ISO date, open if {@code null}
+     * @param to last planned end date as ISO date, open if {@code null}
+     * @param localOnly always true since we just want the local data from the
+     * called instance
+     * @return entries in the range from the called instance
+     */
+    @GET
+    CompletionStage<List<VehicleOrder>> getByPlannedEndDate(@QueryParam("endFrom") String from,
+            @QueryParam("endTo") String to, @QueryParam("local") boolean localOnly);
+
+    /**
+     * Used to fetch the order counts maintained by another databackend
+     * instance.
+     *
+     * @param dimension the orders are counted by
+     * @param localOnly always true since we just want the local data from the
+     * called instance
+     * @return counts of the groups maintained by the called instance
+     */
+    @GET
+    @Path(VehicleOrderResource.COUNTS_PATH)
+    @Produces(MediaType.APPLICATION_JSON)
+    CompletionStage<List<OrderCount>> getOrderCounts(@QueryParam("by") OrderCountDimension dimension,
+            @QueryParam("local") boolean localOnly);
+
+    /**
+     * Used to fetch one key-ordered page of entries from another databackend
+     * instance.
+     *
+     * @param after cursor, only entries with a greater key are returned
+     * @param limit maximum number of entries
+     * @param localOnly always true since we just want the local data from the
+     * called instance
+     * @return page of entries from the called instance
+     */
+    @GET
+    CompletionStage<List<VehicleOrder>> getPage(@QueryParam("after") String after, @QueryParam("limit") int limit,
+            @QueryParam("local") boolean localOnly);
+
+    /**
+     * Used to fetch the version vector entries of another databackend
+     * instance.
+     *
+     * @param localOnly always true since we just want the entries of the
+     * called instance
+     * @return entries of the partitions of the called instance
+     */
+    @GET
+    @Path(VehicleOrderResource.VERSION_PATH)
+    @Produces(MediaType.TEXT_PLAIN)
+    CompletionStage<String> getVersion(@QueryParam("local") boolean localOnly);
+
+    /**
+     * Used to wait for the outcomes of written records at the databackend
+     * instance hosting their partitions.
+     *
+     * @param positions of the records
+     * @param timeout maximum time to wait in milliseconds
+     * @return outcome of every record, in the order of the positions
+     */
+    @POST
+    @Path(VehicleOrderResource.OUTCOMES_PATH)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    CompletionStage<List<WriteOutcome>> getOutcomes(List<RecordPosition> positions, @QueryParam("timeout") long timeout);
+
+    /**
+     * Used to relay the change feed of another databackend instance.
+     *
+     * @param localOnly always true since the changes of every instance are
+     * relayed separately
+     * @param plantId only orders with an OrderPerPlant or assembly line in this plant
+     * @param vehicleId only orders of this vehicle model
+     * @param since position to resume from, {@code null} for only new changes
+     * @return server-sent events of the changes of the called instance
+     */
+    @GET
+    @Path(VehicleOrderResource.CHANGES_PATH)
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    Publisher<InboundSseEvent> streamChanges(@QueryParam("local") boolean localOnly, @QueryParam("plantId") String plantId,
+            @QueryParam("vehicleId") String vehicleId, @QueryParam("since") String since);
+
+    /**
+     * Used to stream all entries as NDJSON from another databackend instance.
+     *
+     * @param localOnly always true since we just want the local data from the
+     * called instance
+     * @return newline-delimited JSON stream of all entries, has to be closed by
+     * the caller
+     */
+    @GET
+    @Produces(ResourceBase.APPLICATION_NDJSON)
+    InputStream streamAll(@QueryParam("local") boolean localOnly);
 }
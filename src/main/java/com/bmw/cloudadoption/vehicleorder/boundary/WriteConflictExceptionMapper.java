@@ -0,0 +1,20 @@
+package com.bmw.cloudadoption.vehicleorder.boundary;
+
+import com.bmw.cloudadoption.vehicleorder.control.WriteConflictException;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Maps a rejected conditional write to {@code 412 Precondition Failed}, the
+ * client has to read the entry again to get its current version.
+ */
+@Provider
+public class WriteConflictExceptionMapper implements ExceptionMapper<WriteConflictException> {
+
+    @Override
+    public Response toResponse(WriteConflictException exception) {
+        return Response.status(Response.Status.PRECONDITION_FAILED).build();
+    }
+}
@@ -0,0 +1,22 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import lombok.Value;
+
+/**
+ * Notification about a record that has been applied to a state-store by the
+ * kafka-streams topology. Deletions are reported with a {@code null} value.
+ *
+ * @param <K> key type of the record
+ * @param <V> value type of the record
+ */
+@Value
+public class AppliedRecord<K, V> {
+
+    String storeName;
+    K key;
+    V value;
+    String topic;
+    int partition;
+    long offset;
+    long timestamp;
+}
@@ -0,0 +1,44 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.processor.api.RecordMetadata;
+
+/**
+ * Terminal processor placed behind a materialized table. Every record reaching
+ * it has already been written to the state-store, so it is published to the
+ * {@link AppliedRecordRegistry} together with its source partition and offset.
+ * <p>
+ * Caching has to be disabled for the table, otherwise records are only
+ * forwarded when the cache is flushed.
+ *
+ * @param <K> key type of the table
+ * @param <V> value type of the table
+ */
+public class AppliedRecordProcessor<K, V> implements Processor<K, V, Void, Void> {
+
+    private final AppliedRecordRegistry registry;
+    private final String storeName;
+    private ProcessorContext<Void, Void> context;
+
+    public AppliedRecordProcessor(AppliedRecordRegistry registry, String storeName) {
+        this.registry = registry;
+        this.storeName = storeName;
+    }
+
+    @Override
+    public void init(ProcessorContext<Void, Void> context) {
+        this.context = context;
+    }
+
+    @Override
+    public void process(Record<K, V> record) {
+        RecordMetadata metadata = context.recordMetadata().orElse(null);
+        registry.applied(new AppliedRecord<>(storeName, record.key(), record.value(),
+                metadata != null ? metadata.topic() : null,
+                metadata != null ? metadata.partition() : -1,
+                metadata != null ? metadata.offset() : -1L,
+                record.timestamp()));
+    }
+}
@@ -0,0 +1,212 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import org.apache.kafka.streams.KafkaStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * In-process registry for records that have been processed by the
+ * kafka-streams topology of this instance.
+ * <p>
+ * The topology publishes every record applied to a state-store via
+ * {@link #applied(AppliedRecord)} and every conditional record it rejected via
+ * {@link #rejected(AppliedRecord)}. Writers know the partition and offset of
+ * their record from the acknowledgement of the broker and wait for its
+ * outcome via {@link #awaitOutcome(String, int, long)}, instead of polling the
+ * state-store. The outcomes of the records processed since the last rebalance
+ * are remembered, so a writer may ask after its record has been processed.
+ * Other components can subscribe to all applied records as listeners.
+ */
+@ApplicationScoped
+public class AppliedRecordRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AppliedRecordRegistry.class);
+
+    // rejected offsets remembered per partition, older rejections become unknown outcomes
+    private static final int MAX_REJECTIONS = 10_000;
+
+    @Inject
+    StreamsStateListener streamsStateListener;
+
+    // processed offsets per state-store and partition
+    private final Map<String, Map<Integer, PartitionLog>> logs = new ConcurrentHashMap<>();
+
+    private final List<Consumer<AppliedRecord<?, ?>>> listeners = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    void init() {
+        // during a rebalance partitions may move, records processed by other instances meanwhile are never seen here
+        streamsStateListener.addListener(state -> {
+            if (state != KafkaStreams.State.RUNNING) {
+                logs.values().forEach(storeLogs -> storeLogs.values().forEach(PartitionLog::clear));
+            }
+        });
+    }
+
+    /**
+     * Waits for the outcome of a record. If the record has already been
+     * processed since the last rebalance, the future is completed right away.
+     *
+     * @param storeName name of the state-store the record is materialized in
+     * @param partition of the record
+     * @param offset of the record
+     * @return future completing with the outcome once this instance has
+     * processed the record, {@link WriteOutcome#UNKNOWN} if it has been
+     * processed before the last rebalance or skipped. Does not complete if
+     * another instance processes the record, the caller has to time out. If
+     * the future is completed by the caller, the registration is removed.
+     */
+    public CompletableFuture<WriteOutcome> awaitOutcome(String storeName, int partition, long offset) {
+        return log(storeName, partition).await(offset);
+    }
+
+    /**
+     * Publishes a record that has been applied to a state-store. Called by the
+     * stream thread, therefore listeners must not block.
+     *
+     * @param record that has been applied
+     */
+    public void applied(AppliedRecord<?, ?> record) {
+        if (record.getPartition() >= 0) {
+            log(record.getStoreName(), record.getPartition()).processed(record.getOffset(), WriteOutcome.APPLIED);
+        }
+
+        for (Consumer<AppliedRecord<?, ?>> listener : listeners) {
+            try {
+                listener.accept(record);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Listener failed for applied record of store {}", record.getStoreName(), e);
+            }
+        }
+    }
+
+    /**
+     * Publishes a conditional record the topology did not apply, because the
+     * current value did not match the condition. Called by the stream thread.
+     *
+     * @param record that has been rejected
+     */
+    public void rejected(AppliedRecord<?, ?> record) {
+        if (record.getPartition() >= 0) {
+            log(record.getStoreName(), record.getPartition()).processed(record.getOffset(), WriteOutcome.REJECTED);
+        }
+    }
+
+    /**
+     * Subscribes to all records applied to any state-store.
+     *
+     * @param listener called on the stream thread for every applied record
+     */
+    public void addListener(Consumer<AppliedRecord<?, ?>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added via {@link #addListener(Consumer)}.
+     *
+     * @param listener to remove
+     */
+    public void removeListener(Consumer<AppliedRecord<?, ?>> listener) {
+        listeners.remove(listener);
+    }
+
+    private PartitionLog log(String storeName, int partition) {
+        return logs.computeIfAbsent(storeName, name -> new ConcurrentHashMap<>())
+                .computeIfAbsent(partition, p -> new PartitionLog());
+    }
+
+    /**
+     * Offsets of one partition processed since the last rebalance and the
+     * writers waiting for later offsets. A partition is processed by one stream
+     * thread at a time, in the order of its offsets.
+     */
+    private static final class PartitionLog {
+
+        // first and last offset processed since the last rebalance, -1 if none
+        private long first = -1;
+        private long last = -1;
+
+        // offsets of the rejected records between first and last
+        private final NavigableSet<Long> rejections = new TreeSet<>();
+
+        // outcomes up to this offset are unknown, the rejections have been dropped
+        private long forgotten = -1;
+
+        private final NavigableMap<Long, List<CompletableFuture<WriteOutcome>>> waiting = new TreeMap<>();
+
+        CompletableFuture<WriteOutcome> await(long offset) {
+            CompletableFuture<WriteOutcome> outcome = new CompletableFuture<>();
+            synchronized (this) {
+                if (last >= 0 && offset <= last) {
+                    outcome.complete(outcome(offset));
+                    return outcome;
+                }
+                waiting.computeIfAbsent(offset, o -> new ArrayList<>()).add(outcome);
+            }
+            outcome.whenComplete((result, e) -> remove(offset, outcome));
+            return outcome;
+        }
+
+        void processed(long offset, WriteOutcome outcome) {
+            Map<Long, List<CompletableFuture<WriteOutcome>>> done;
+            synchronized (this) {
+                if (first < 0) {
+                    first = offset;
+                }
+                last = offset;
+                if (outcome == WriteOutcome.REJECTED) {
+                    rejections.add(offset);
+                    if (rejections.size() > MAX_REJECTIONS) {
+                        forgotten = rejections.pollFirst();
+                    }
+                }
+                NavigableMap<Long, List<CompletableFuture<WriteOutcome>>> head = waiting.headMap(offset, true);
+                if (head.isEmpty()) {
+                    return;
+                }
+                done = new TreeMap<>(head);
+                head.clear();
+            }
+            // complete outside of the lock, completion removes the waiting writer
+            done.forEach((waitingOffset, writers) -> writers.forEach(writer -> writer.complete(
+                    waitingOffset == offset ? outcome : WriteOutcome.UNKNOWN)));
+        }
+
+        synchronized void clear() {
+            first = -1;
+            last = -1;
+            rejections.clear();
+            forgotten = -1;
+        }
+
+        private WriteOutcome outcome(long offset) {
+            if (offset < first || offset <= forgotten) {
+                return WriteOutcome.UNKNOWN;
+            }
+            return rejections.contains(offset) ? WriteOutcome.REJECTED : WriteOutcome.APPLIED;
+        }
+
+        private synchronized void remove(long offset, CompletableFuture<WriteOutcome> outcome) {
+            List<CompletableFuture<WriteOutcome>> writers = waiting.get(offset);
+            if (writers != null && writers.remove(outcome) && writers.isEmpty()) {
+                waiting.remove(offset);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import org.apache.kafka.streams.state.RocksDBConfigSetter;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.Cache;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.CompressionType;
+import org.rocksdb.LRUCache;
+import org.rocksdb.Options;
+import org.rocksdb.WriteBufferManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * RocksDB configuration of all persistent state-stores. All stores of the
+ * instance share one block cache and one write buffer manager, so the
+ * off-heap memory of RocksDB is bounded by
+ * {@code vehicleorder.rocksdb.total-off-heap-bytes}, independent of the number
+ * of stores and partitions. Point lookups are served via bloom filters.
+ * <p>
+ * Instantiated by kafka-streams, configured with the {@code kafka-streams.*}
+ * properties, e.g. {@code kafka-streams.vehicleorder.rocksdb.compression=lz4}.
+ */
+public class BoundedMemoryRocksDBConfig implements RocksDBConfigSetter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BoundedMemoryRocksDBConfig.class);
+
+    private static final String PREFIX = "vehicleorder.rocksdb.";
+    static final String TOTAL_OFF_HEAP_BYTES = PREFIX + "total-off-heap-bytes";
+    static final String TOTAL_MEMTABLE_BYTES = PREFIX + "total-memtable-bytes";
+    static final String INDEX_FILTER_BLOCK_RATIO = PREFIX + "index-filter-block-ratio";
+    static final String BLOCK_SIZE_BYTES = PREFIX + "block-size-bytes";
+    static final String BLOOM_FILTER_BITS_PER_KEY = PREFIX + "bloom-filter-bits-per-key";
+    static final String COMPACTION_STYLE = PREFIX + "compaction-style";
+    static final String COMPRESSION = PREFIX + "compression";
+
+    // shared by all stores of the instance, created with the configuration of the first store
+    private static Cache cache;
+    private static WriteBufferManager writeBufferManager;
+
+    // owned by one store, closed with it
+    private BloomFilter bloomFilter;
+
+    @Override
+    public void setConfig(String storeName, Options options, Map<String, Object> configs) {
+        BlockBasedTableConfig tableConfig = (BlockBasedTableConfig) options.tableFormatConfig();
+
+        initSharedMemory(configs);
+        tableConfig.setBlockCache(cache);
+        options.setWriteBufferManager(writeBufferManager);
+        // index and filter blocks are accounted in the cache, the top level stays pinned
+        tableConfig.setCacheIndexAndFilterBlocks(true);
+        tableConfig.setCacheIndexAndFilterBlocksWithHighPriority(true);
+        tableConfig.setPinTopLevelIndexAndFilter(true);
+        tableConfig.setBlockSize(getLong(configs, BLOCK_SIZE_BYTES, 16 * 1024L));
+
+        double bitsPerKey = getDouble(configs, BLOOM_FILTER_BITS_PER_KEY, 10);
+        if (bitsPerKey > 0) {
+            bloomFilter = new BloomFilter(bitsPerKey, false);
+            tableConfig.setFilterPolicy(bloomFilter);
+        }
+        options.setTableFormatConfig(tableConfig);
+
+        options.setCompactionStyle(CompactionStyle.valueOf(getString(configs, COMPACTION_STYLE, "level").toUpperCase(Locale.ROOT)));
+        options.setCompressionType(compressionType(getString(configs, COMPRESSION, "lz4")));
+    }
+
+    @Override
+    public void close(String storeName, Options options) {
+        // the cache and the write buffer manager are shared, they live as long as the instance
+        if (bloomFilter != null) {
+            bloomFilter.close();
+        }
+    }
+
+    private static synchronized void initSharedMemory(Map<String, Object> configs) {
+        if (cache != null) {
+            return;
+        }
+        long totalOffHeapBytes = getLong(configs, TOTAL_OFF_HEAP_BYTES, 128 * 1024 * 1024L);
+        long totalMemtableBytes = getLong(configs, TOTAL_MEMTABLE_BYTES, 32 * 1024 * 1024L);
+        double indexFilterBlockRatio = getDouble(configs, INDEX_FILTER_BLOCK_RATIO, 0.1);
+        LOGGER.info("RocksDB memory bounded to {} bytes, of which {} bytes memtables", totalOffHeapBytes, totalMemtableBytes);
+        cache = new LRUCache(totalOffHeapBytes, -1, false, indexFilterBlockRatio);
+        // memtables are charged against the block cache, so the cache bounds all memory
+        writeBufferManager = new WriteBufferManager(totalMemtableBytes, cache);
+    }
+
+    static CompressionType compressionType(String name) {
+        String normalized = name.toUpperCase(Locale.ROOT);
+        if ("NONE".equals(normalized)) {
+            return CompressionType.NO_COMPRESSION;
+        }
+        return CompressionType.valueOf(normalized.endsWith("_COMPRESSION") ? normalized : normalized + "_COMPRESSION");
+    }
+
+    private static String getString(Map<String, Object> configs, String name, String defaultValue) {
+        Object value = configs.get(name);
+        return value != null ? value.toString().trim() : defaultValue;
+    }
+
+    private static long getLong(Map<String, Object> configs, String name, long defaultValue) {
+        Object value = configs.get(name);
+        return value != null ? Long.parseLong(value.toString().trim()) : defaultValue;
+    }
+
+    private static double getDouble(Map<String, Object> configs, String name, double defaultValue) {
+        Object value = configs.get(name);
+        return value != null ? Double.parseDouble(value.toString().trim()) : defaultValue;
+    }
+}
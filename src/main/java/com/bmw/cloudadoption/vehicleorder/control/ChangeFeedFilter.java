@@ -0,0 +1,49 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrderChange;
+
+/**
+ * Filter of the change feed by plant and vehicle model. Deletions carry no
+ * value and always pass, clients ignore deletions of orders they do not know.
+ * The filter applies to the new value only, an order changed so that it no
+ * longer matches is not sent.
+ */
+public class ChangeFeedFilter {
+
+    private final String plantId;
+    private final String vehicleId;
+
+    /**
+     * @param plantId the orders need an OrderPerPlant or assembly line in,
+     * {@code null} for all plants
+     * @param vehicleId of the orders, {@code null} for all vehicle models
+     */
+    public ChangeFeedFilter(String plantId, String vehicleId) {
+        this.plantId = plantId;
+        this.vehicleId = vehicleId;
+    }
+
+    public String getPlantId() {
+        return plantId;
+    }
+
+    public String getVehicleId() {
+        return vehicleId;
+    }
+
+    /**
+     * @param change of an order
+     * @return true if the change has to be sent
+     */
+    public boolean test(VehicleOrderChange change) {
+        if (change.getValue() == null) {
+            return true;
+        }
+        if (vehicleId != null && !vehicleId.equals(change.getValue().getVehicleId())) {
+            return false;
+        }
+        return plantId == null || change.getValue().getOrderPerPlant() != null
+                && change.getValue().getOrderPerPlant().stream().anyMatch(orderPerPlant -> plantId.equals(orderPerPlant.getPlantId())
+                || orderPerPlant.getAssemblyLine() != null && plantId.equals(orderPerPlant.getAssemblyLine().getPlantId()));
+    }
+}
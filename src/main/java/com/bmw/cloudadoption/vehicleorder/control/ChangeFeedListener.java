@@ -0,0 +1,42 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrderChange;
+
+/**
+ * Subscriber of the change feed. Called on the stream threads or the threads
+ * of the rest-clients, therefore implementations must not block.
+ */
+public interface ChangeFeedListener {
+
+    /**
+     * Names of the server-sent events of the change feed.
+     */
+    String EVENT_POSITION = "position";
+    String EVENT_UPSERT = "upsert";
+    String EVENT_DELETE = "delete";
+    String EVENT_RESET = "reset";
+
+    /**
+     * Called once for a new subscription without resume position.
+     *
+     * @param position of the last changes applied when subscribing
+     */
+    void onPosition(ChangeFeedPosition position);
+
+    /**
+     * @param change applied to the state-store
+     */
+    void onChange(VehicleOrderChange change);
+
+    /**
+     * The changes since the resume position are no longer buffered, the client
+     * has to reload all orders. Changes are sent on from now on.
+     */
+    void onReset();
+
+    /**
+     * The feed ended, e.g. because of a rebalance. The client resumes with the
+     * position of its last change.
+     */
+    void onClose();
+}
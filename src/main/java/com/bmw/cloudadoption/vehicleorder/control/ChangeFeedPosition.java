@@ -0,0 +1,72 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Position in the change feed, the offset of the last change seen per
+ * partition of the backing topic. Written as {@code partition:offset} pairs
+ * separated by commas, e.g. {@code 0:1041,1:997}, and used as id of the
+ * server-sent events, so clients resume via {@code Last-Event-ID}.
+ */
+public class ChangeFeedPosition {
+
+    private final Map<Integer, Long> offsets = new TreeMap<>();
+
+    /**
+     * @param position as written by {@link #toString()}, may be empty
+     * @return the parsed position
+     * @throws IllegalArgumentException if the position is malformed
+     */
+    public static ChangeFeedPosition parse(String position) {
+        ChangeFeedPosition result = new ChangeFeedPosition();
+        if (position == null || position.isBlank()) {
+            return result;
+        }
+        for (String pair : position.split(",")) {
+            int separator = pair.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid change feed position: " + position);
+            }
+            try {
+                result.advance(Integer.parseInt(pair.substring(0, separator).trim()), Long.parseLong(pair.substring(separator + 1).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid change feed position: " + position, e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param partition of the backing topic
+     * @return offset of the last change seen, {@code null} if none
+     */
+    public Long offset(int partition) {
+        return offsets.get(partition);
+    }
+
+    /**
+     * Moves the position of a partition forward, never backwards.
+     *
+     * @param partition of the backing topic
+     * @param offset of a change seen
+     */
+    public void advance(int partition, long offset) {
+        offsets.merge(partition, offset, Math::max);
+    }
+
+    /**
+     * @param other position to merge, e.g. of another instance
+     */
+    public void advance(ChangeFeedPosition other) {
+        other.offsets.forEach(this::advance);
+    }
+
+    @Override
+    public String toString() {
+        return offsets.entrySet().stream()
+                .map(entry -> entry.getKey() + ":" + entry.getValue())
+                .collect(Collectors.joining(","));
+    }
+}
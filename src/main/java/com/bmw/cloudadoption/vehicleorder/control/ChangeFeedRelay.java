@@ -0,0 +1,82 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrderChange;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.InboundSseEvent;
+
+/**
+ * Relays the change feed of another instance, read as server-sent events, to
+ * a listener. The listener is closed when the feed of the other instance ends.
+ */
+public class ChangeFeedRelay implements Subscriber<InboundSseEvent> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeFeedRelay.class);
+
+    private final ChangeFeedListener listener;
+
+    private volatile Subscription subscription;
+    private volatile boolean cancelled;
+
+    public ChangeFeedRelay(ChangeFeedListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        if (cancelled) {
+            subscription.cancel();
+        } else {
+            subscription.request(Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public void onNext(InboundSseEvent event) {
+        if (event.getName() == null) {
+            return;
+        }
+        switch (event.getName()) {
+            case ChangeFeedListener.EVENT_POSITION:
+                listener.onPosition(ChangeFeedPosition.parse(event.readData()));
+                break;
+            case ChangeFeedListener.EVENT_UPSERT:
+            case ChangeFeedListener.EVENT_DELETE:
+                listener.onChange(event.readData(VehicleOrderChange.class, MediaType.APPLICATION_JSON_TYPE));
+                break;
+            case ChangeFeedListener.EVENT_RESET:
+                listener.onReset();
+                break;
+            default:
+                LOGGER.debug("Ignoring change feed event {}", event.getName());
+        }
+    }
+
+    @Override
+    public void onError(Throwable e) {
+        LOGGER.debug("Change feed of another instance failed", e);
+        listener.onClose();
+    }
+
+    @Override
+    public void onComplete() {
+        listener.onClose();
+    }
+
+    /**
+     * Stops reading the feed of the other instance.
+     */
+    public void cancel() {
+        cancelled = true;
+        Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+}
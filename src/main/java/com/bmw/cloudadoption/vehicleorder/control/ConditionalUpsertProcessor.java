@@ -0,0 +1,109 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.processor.api.RecordMetadata;
+import org.apache.kafka.streams.state.TimestampedKeyValueStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * Processor materializing the backing topic into a table, like a source table
+ * does, but honouring conditional writes. A record carrying the
+ * {@link #IF_MATCH_HEADER} is only applied if the current value still has the
+ * version in the header, otherwise it is dropped and published to the
+ * {@link AppliedRecordRegistry} as rejected. Since all records of a key are
+ * processed in order by one task, the check and the write are atomic.
+ * <p>
+ * The version of the current value is the hash of its stored bytes, see
+ * {@link StoredValues#version()}. A value still stored in an older format also
+ * matches the version of its re-serialization, which is the version instances
+ * without the stored bytes hand out.
+ * <p>
+ * Every applied record is forwarded downstream, without its headers.
+ *
+ * @param <V> value type of the table
+ */
+public class ConditionalUpsertProcessor<V> implements Processor<String, V, String, V> {
+
+    /**
+     * Header of a conditional record, the expected version of the current
+     * value as UTF-8.
+     */
+    public static final String IF_MATCH_HEADER = "if-match";
+
+    /**
+     * Condition matching any current value, but no missing one.
+     */
+    public static final String ANY = "*";
+
+    private final String storeName;
+    private final AppliedRecordRegistry registry;
+    private final Function<V, String> version;
+
+    private ProcessorContext<String, V> context;
+    private TimestampedKeyValueStore<String, V> store;
+
+    /**
+     * @param storeName name of the timestamped store of the table, its keys
+     * are serialized as UTF-8 strings
+     * @param registry rejected records are published to
+     * @param version returns the version of a re-serialized value
+     */
+    public ConditionalUpsertProcessor(String storeName, AppliedRecordRegistry registry, Function<V, String> version) {
+        this.storeName = storeName;
+        this.registry = registry;
+        this.version = version;
+    }
+
+    @Override
+    public void init(ProcessorContext<String, V> context) {
+        this.context = context;
+        this.store = context.getStateStore(storeName);
+    }
+
+    @Override
+    public void process(Record<String, V> record) {
+        if (record.key() == null) {
+            // just like a source table
+            return;
+        }
+        Header ifMatch = record.headers().lastHeader(IF_MATCH_HEADER);
+        if (ifMatch != null) {
+            String condition = new String(ifMatch.value(), StandardCharsets.UTF_8);
+            if (!matches(record.key(), condition)) {
+                RecordMetadata metadata = context.recordMetadata().orElse(null);
+                registry.rejected(new AppliedRecord<>(storeName, record.key(), record.value(),
+                        metadata != null ? metadata.topic() : null,
+                        metadata != null ? metadata.partition() : -1,
+                        metadata != null ? metadata.offset() : -1L,
+                        record.timestamp()));
+                return;
+            }
+        }
+
+        if (record.value() == null) {
+            store.delete(record.key());
+        } else {
+            store.put(record.key(), ValueAndTimestamp.make(record.value(), record.timestamp()));
+        }
+        context.forward(new Record<>(record.key(), record.value(), record.timestamp()));
+    }
+
+    private boolean matches(String key, String condition) {
+        byte[] stored = RawValueStore.get(store, Bytes.wrap(key.getBytes(StandardCharsets.UTF_8)));
+        if (stored == null) {
+            return false;
+        }
+        if (ANY.equals(condition) || condition.equals(StoredValues.version(stored))) {
+            return true;
+        }
+        ValueAndTimestamp<V> current = store.get(key);
+        return current != null && condition.equals(version.apply(current.value()));
+    }
+}
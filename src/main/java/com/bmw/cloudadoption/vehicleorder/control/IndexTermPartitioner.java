@@ -0,0 +1,22 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import org.apache.kafka.common.utils.Utils;
+import org.apache.kafka.streams.processor.StreamPartitioner;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Partitions index entries of a {@link SecondaryIndexProcessor} by their term
+ * only, so all entries of one term end up in the same partition. Used both to
+ * repartition an index and to find the instance hosting a term.
+ *
+ * @param <V> value type of the index entries
+ */
+public class IndexTermPartitioner<V> implements StreamPartitioner<String, V> {
+
+    @Override
+    public Integer partition(String topic, String indexKey, V value, int numPartitions) {
+        byte[] term = SecondaryIndexProcessor.term(indexKey).getBytes(StandardCharsets.UTF_8);
+        return Utils.toPositive(Utils.murmur2(term)) % numPartitions;
+    }
+}
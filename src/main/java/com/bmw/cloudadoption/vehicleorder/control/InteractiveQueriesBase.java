@@ -1,41 +1,68 @@
 package com.bmw.cloudadoption.vehicleorder.control;
 
-import io.smallrye.reactive.messaging.kafka.OutgoingKafkaRecordMetadata;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.configuration.MemorySize;
+import io.smallrye.reactive.messaging.kafka.KafkaClientService;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.utils.Bytes;
 import org.apache.kafka.streams.KafkaStreams;
 import org.apache.kafka.streams.KeyQueryMetadata;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.LagInfo;
 import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.StreamsMetadata;
 import org.apache.kafka.streams.errors.InvalidStateStoreException;
 import org.apache.kafka.streams.state.*;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
-import org.eclipse.microprofile.reactive.messaging.Channel;
-import org.eclipse.microprofile.reactive.messaging.Emitter;
-import org.eclipse.microprofile.reactive.messaging.Message;
-import org.eclipse.microprofile.reactive.messaging.Metadata;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.jboss.resteasy.plugins.interceptors.AcceptEncodingGZIPFilter;
+import org.jboss.resteasy.plugins.interceptors.GZIPDecodingInterceptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Response;
 import com.bmw.cloudadoption.vehicleorder.control.serdes.AllToNullSerializer;
+import com.bmw.cloudadoption.vehicleorder.entity.RecordPosition;
 
 /**
  * Abstract, generic base class for kafka-streams interactive queries against a
  * state-store.
  * <p>
- * There are two public methods: - getEntry - get one entry inside the
+ * There are four public query methods: - getEntry - get one entry inside the
  * state-store by key - getAll - get all values inside the state-store (whether
- * distributed or not)
+ * distributed or not) - getPage - get a key-ordered page of values after a
+ * cursor - streamAll - write all values as NDJSON without materializing them
  * <p>
  * If the kafka-streams application scales to multiple instances these instances
  * communicate via their REST-API using MicroProfile REST Client. If deployed on
@@ -49,7 +76,13 @@ import com.bmw.cloudadoption.vehicleorder.control.serdes.AllToNullSerializer;
 public class InteractiveQueriesBase<K, V, R> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(InteractiveQueriesBase.class);
-    private static final String INTERRUPTED_WHILE_WAITING_FOR_STREAMS_STORE_TO_BE_READY = "interrupted while waiting for streams store to be ready";
+    private static final byte NEWLINE = '\n';
+
+    /**
+     * This channel uses {@link AllToNullSerializer} and therefore only produces
+     * tombstone record
+     */
+    private static final String TOMBSTONE_CHANNEL = "kafka-empty";
 
     @Inject
     KafkaStreams streams;
@@ -60,13 +93,99 @@ public class InteractiveQueriesBase<K, V, R> {
     @ConfigProperty(name = "quarkus.http.port")
     int port;
 
-    /**
-     * This channel uses {@link AllToNullSerializer} and therefore only produces
-     * tombstone record
-     */
+    // input topics of the application, the tasks reading them host the state-store
+    @ConfigProperty(name = "quarkus.kafka-streams.topics")
+    Set<String> sourceTopics;
+
+    // producers of the outgoing channels, they report partition and offset of the records sent
+    @Inject
+    KafkaClientService kafkaClientService;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @Inject
+    AppliedRecordRegistry appliedRecords;
+
+    @Inject
+    StreamsStateListener streamsStateListener;
+
+    @Inject
+    QueryableStores queryableStores;
+
     @Inject
-    @Channel("kafka-empty")
-    Emitter<String> allToNullChannel;
+    QueryMetrics queryMetrics;
+
+    // maximum number of pooled keep-alive connections of a rest-client
+    @ConfigProperty(name = "vehicleorder.rest-client.connection-pool-size", defaultValue = "50")
+    int connectionPoolSize;
+
+    // maximum number of pooled keep-alive connections of a rest-client to its instance
+    @ConfigProperty(name = "vehicleorder.rest-client.max-pooled-per-route", defaultValue = "50")
+    int maxPooledPerRoute;
+
+    @ConfigProperty(name = "vehicleorder.rest-client.connect-timeout", defaultValue = "2s")
+    Duration connectTimeout;
+
+    @ConfigProperty(name = "vehicleorder.rest-client.read-timeout", defaultValue = "10s")
+    Duration readTimeout;
+
+    // request the binary format from other instances, JSON otherwise
+    @ConfigProperty(name = "vehicleorder.rest-client.binary-format", defaultValue = "true")
+    boolean binaryFormat;
+
+    // request gzip compressed lists from other instances
+    @ConfigProperty(name = "vehicleorder.rest-client.compression", defaultValue = "true")
+    boolean compression;
+
+    // maximum size of a decompressed response of another instance, e.g. all orders of a getAll
+    @ConfigProperty(name = "vehicleorder.rest-client.max-decompressed-size", defaultValue = "10M")
+    MemorySize maxDecompressedSize;
+
+    // offset lag allowed for reads from standby replicas and restoring stores, negative disables them
+    @ConfigProperty(name = "vehicleorder.stale-reads.max-lag", defaultValue = "-1")
+    long defaultMaxLag;
+
+    // the local lags are looked up at most once per interval in the background, the lookup asks the brokers for end offsets
+    @ConfigProperty(name = "vehicleorder.stale-reads.lag-refresh-interval", defaultValue = "1s")
+    Duration lagRefreshInterval;
+
+    // number of local partitions scanned in parallel by getAll, 1 scans all partitions on the request thread
+    @ConfigProperty(name = "vehicleorder.scan.parallelism", defaultValue = "4")
+    int scanParallelism;
+
+    // bounded pool for partition scans, null if parallel scans are disabled
+    private ExecutorService scanExecutor;
+
+    // offset lags of the local partitions of the state-store, active and standby
+    private volatile Map<Integer, LagInfo> localLags;
+
+    // System.nanoTime() of the last lookup of the local lags
+    private volatile long localLagsTimestamp;
+
+    // true while a lookup of the local lags is running, so only one caller starts it
+    private final AtomicBoolean localLagsRefreshing = new AtomicBoolean();
+
+    // single thread looking up the local lags, keeps the broker round trip off the request threads
+    private ExecutorService lagExecutor;
+
+    // time to wait for a written record to be materialized in the state-store
+    @ConfigProperty(name = "vehicleorder.write-confirmation.timeout", defaultValue = "3s")
+    Duration writeConfirmationTimeout;
+
+    // number of threads reading the state-stores to confirm writes with an unknown outcome
+    @ConfigProperty(name = "vehicleorder.write-confirmation.threads", defaultValue = "4")
+    int confirmationThreads;
+
+    // bounded pool for the blocking reads of write confirmations, keeps them off the common pool
+    private ExecutorService confirmationExecutor;
+
+    // number of threads running queries that gather from all instances off the request threads
+    @ConfigProperty(name = "vehicleorder.query.threads", defaultValue = "8")
+    int queryThreads;
+
+    // bounded pool for asynchronous queries, keeps their blocking remote calls off the common pool
+    private ExecutorService queryExecutor;
 
     // host-info of the current application instance
     private HostInfo hostInfo;
@@ -74,21 +193,45 @@ public class InteractiveQueriesBase<K, V, R> {
     // name of the kafka-streams state-store
     private String stateStoreName;
 
-    // cache for all microprofile rest-clients on different ip-adresses (OpenShift pods)
-    private final Map<String, R> restClientCache = new HashMap<>();
+    // rest-clients of the other instances (OpenShift pods), rebuilt after every rebalance
+    private final RestClientRegistry<R> restClients = new RestClientRegistry<>(host -> this.getRestClient.apply(restClientBuilder(host)));
+
+    // all rest-client registries refreshed on rebalance
+    private final List<RestClientRegistry<?>> restClientRegistries = new CopyOnWriteArrayList<>(Collections.singletonList(restClients));
 
     // function for getting one value by key (in the local state-store)
     private BiFunction<R, K, V> getEntry;
 
+    // function for getting one value by key from a possibly stale local state-store
+    private StaleEntryFunction<R, K, V> getStaleEntry;
+
+    // function for getting many values by their keys (in the local state-store)
+    private BiFunction<R, List<K>, CompletionStage<List<V>>> getEntries;
+
     // function for getting all values (in the local state-store)
     private Function<R, CompletionStage<List<V>>> getAll;
 
-    // function for getting the rest-client for a URL
-    private Function<URL, R> getRestClient;
+    // function for getting one key-ordered page of values (in the local state-store)
+    private PageFunction<R, K, V> getPage;
+
+    // function for waiting for the outcomes of written records (in the local topology)
+    private OutcomesFunction<R> getOutcomes;
+
+    // function for streaming all values as NDJSON (in the local state-store)
+    private Function<R, InputStream> streamAll;
+
+    // function for extracting the key of a value
+    private Function<V, K> getKey;
+
+    // function for building the rest-client with a configured builder
+    private Function<RestClientBuilder, R> getRestClient;
 
     // type of the topic-key
     private Class<K> keyType;
 
+    // serializer of the topic-key, defines the order of keys inside the state-store
+    private Serializer<K> keySerializer;
+
     public InteractiveQueriesBase(){}
 
     /**
@@ -101,25 +244,154 @@ public class InteractiveQueriesBase<K, V, R> {
      * @param keyType of the entity
      * @param getRestClient rest-client to fetch data from other instances
      * @param getEntry returns a single entry from the state-store
+     * @param getStaleEntry returns a single entry from the local state-store
+     * of an active or standby instance if it lags at most the given offsets
+     * @param getEntries returns many entries by their keys from the state-store
      * @param getAll returns a list of all entries in the state-store
+     * @param getPage returns a key-ordered page of entries in the state-store
+     * @param getOutcomes waits for the outcomes of written records
+     * @param streamAll returns all entries in the state-store as NDJSON stream
+     * @param getKey returns the key of an entry
      */
     protected InteractiveQueriesBase(
             String stateStoreName,
             Class<K> keyType,
-            Function<URL, R> getRestClient,
+            Function<RestClientBuilder, R> getRestClient,
             BiFunction<R, K, V> getEntry,
-            Function<R, CompletionStage<List<V>>> getAll) {
+            StaleEntryFunction<R, K, V> getStaleEntry,
+            BiFunction<R, List<K>, CompletionStage<List<V>>> getEntries,
+            Function<R, CompletionStage<List<V>>> getAll,
+            PageFunction<R, K, V> getPage,
+            OutcomesFunction<R> getOutcomes,
+            Function<R, InputStream> streamAll,
+            Function<V, K> getKey) {
 
         this.stateStoreName = stateStoreName;
         this.getRestClient = getRestClient;
         this.getEntry = getEntry;
+        this.getStaleEntry = getStaleEntry;
+        this.getEntries = getEntries;
         this.getAll = getAll;
+        this.getPage = getPage;
+        this.getOutcomes = getOutcomes;
+        this.streamAll = streamAll;
+        this.getKey = getKey;
         this.keyType = keyType;
+        this.keySerializer = Serdes.serdeFrom(keyType).serializer();
     }
 
     @PostConstruct
     void init() {
         this.hostInfo = new HostInfo(this.host, this.port);
+        AtomicInteger confirmationThreadNumber = new AtomicInteger();
+        this.confirmationExecutor = Executors.newFixedThreadPool(confirmationThreads, runnable -> {
+            Thread thread = new Thread(runnable, stateStoreName + "-confirm-" + confirmationThreadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger queryThreadNumber = new AtomicInteger();
+        this.queryExecutor = Executors.newFixedThreadPool(queryThreads, runnable -> {
+            Thread thread = new Thread(runnable, stateStoreName + "-query-" + queryThreadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lagExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, stateStoreName + "-lag-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (scanParallelism > 1) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.scanExecutor = Executors.newFixedThreadPool(scanParallelism, runnable -> {
+                Thread thread = new Thread(runnable, stateStoreName + "-scan-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        streamsStateListener.addListener(state -> {
+            if (state == KafkaStreams.State.RUNNING) {
+                refreshRestClients();
+            }
+        });
+    }
+
+    @PreDestroy
+    void destroy() {
+        confirmationExecutor.shutdown();
+        queryExecutor.shutdown();
+        lagExecutor.shutdown();
+        if (scanExecutor != null) {
+            scanExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Runs a query on the bounded query pool, for queries that block on other
+     * instances and are answered asynchronously.
+     *
+     * @param <T> result type of the query
+     * @param query to run
+     * @return completes with the result of the query
+     */
+    public <T> CompletionStage<T> supplyAsync(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(query, queryExecutor);
+    }
+
+    /**
+     * Creates a registry of rest-clients for the other instances that is
+     * refreshed together with the registry of this class.
+     *
+     * @param <C> type of the rest-client
+     * @param build builds the rest-client with a configured builder
+     * @return the registry
+     */
+    protected <C> RestClientRegistry<C> createRestClientRegistry(Function<RestClientBuilder, C> build) {
+        RestClientRegistry<C> registry = new RestClientRegistry<>(host -> build.apply(restClientBuilder(host)));
+        restClientRegistries.add(registry);
+        return registry;
+    }
+
+    /**
+     * Rebuilds the routing tables from the current metadata of the group,
+     * called once a rebalance is finished.
+     */
+    private void refreshRestClients() {
+        Set<HostInfo> remoteHosts = streams.metadataForAllStreamsClients().stream()
+                .map(streamsMetadata -> streamsMetadata.hostInfo())
+                .filter(this::isRemoteHost)
+                .collect(Collectors.toSet());
+        LOGGER.debug("Refreshing rest-clients for instances {}", remoteHosts);
+        for (RestClientRegistry<?> registry : restClientRegistries) {
+            registry.retain(remoteHosts);
+        }
+    }
+
+    /**
+     * @param maxSize maximum size of a decompressed response
+     * @return interceptor decompressing gzip responses up to the given size,
+     * registered by class it would apply its default limit of 10 MB
+     */
+    static GZIPDecodingInterceptor gzipDecodingInterceptor(MemorySize maxSize) {
+        return new GZIPDecodingInterceptor((int) Math.min(maxSize.asLongValue(), Integer.MAX_VALUE));
+    }
+
+    private RestClientBuilder restClientBuilder(HostInfo hostInfo) {
+        RestClientBuilder builder = RestClientBuilder.newBuilder()
+                .baseUri(URI.create("http://" + hostInfo.host() + ":" + hostInfo.port()))
+                .connectTimeout(connectTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                // forwarded to the resteasy client builder, which pools keep-alive connections
+                .property("resteasy.connectionPoolSize", connectionPoolSize)
+                .property("resteasy.maxPooledPerRoute", maxPooledPerRoute)
+                .register(new ResponseSizeFilter(queryMetrics, hostInfo));
+        if (!binaryFormat) {
+            builder.register(JsonWireFormatFilter.class);
+        }
+        if (compression) {
+            builder.register(AcceptEncodingGZIPFilter.class)
+                    .register(gzipDecodingInterceptor(maxDecompressedSize));
+        }
+        return builder;
     }
 
     /**
@@ -129,8 +401,9 @@ public class InteractiveQueriesBase<K, V, R> {
      * @return The value for the given key
      */
     public V getEntry(K key) {
-        LOGGER.info("getEntry (key={})", key);
-        KeyQueryMetadata metadata = streams.queryMetadataForKey(stateStoreName, key, Serdes.serdeFrom(keyType).serializer());
+        LOGGER.debug("getEntry (key={})", key);
+        Timer.Sample sample = queryMetrics.start();
+        KeyQueryMetadata metadata = streams.queryMetadataForKey(stateStoreName, key, keySerializer);
         
         if (metadata == KeyQueryMetadata.NOT_AVAILABLE) {
             LOGGER.error("Neither this or other instances has access to requested key. Metadata: {}", metadata);
@@ -138,12 +411,220 @@ public class InteractiveQueriesBase<K, V, R> {
         }
 
         if (isRemoteHost(metadata.getActiveHost())) {
-            LOGGER.info("Querying remote store {} for key: {}", stateStoreName, key);
-            return getOneFromRemote(metadata.getActiveHost(), key);
+            LOGGER.debug("Querying remote store {} for key: {}", stateStoreName, key);
+            V value = getNearCache().get(key, remoteKey -> getOneFromRemote(metadata.getActiveHost(), remoteKey));
+            queryMetrics.getEntry(sample, stateStoreName, "remote");
+            return value;
+        }
+
+        LOGGER.debug("Querying local store {} for key: {}", stateStoreName, key);
+        V value = getQueryableStore().get(key);
+        queryMetrics.getEntry(sample, stateStoreName, "local");
+        return value;
+    }
+
+    /**
+     * Get the serialized value of one key from the local state-store, if this
+     * instance is the active host of the key. The value is returned as it is
+     * stored, without deserializing it.
+     *
+     * @param key The key of the message
+     * @return The stored value for the given key, empty if not found, or
+     * {@code null} if the key is hosted by another instance
+     */
+    public StoredValues getLocalStoredEntry(K key) {
+        Timer.Sample sample = queryMetrics.start();
+        KeyQueryMetadata metadata = streams.queryMetadataForKey(stateStoreName, key, keySerializer);
+        if (metadata == KeyQueryMetadata.NOT_AVAILABLE || isRemoteHost(metadata.activeHost())) {
+            return null;
+        }
+        byte[] value = queryableStores.rawValueStore(stateStoreName, metadata.partition())
+                .get(Bytes.wrap(keySerializer.serialize(stateStoreName, key)));
+        queryMetrics.getEntry(sample, stateStoreName, "local");
+        return StoredValues.single(value);
+    }
+
+    /**
+     * Get one value by key, also from standby replicas and restoring stores
+     * that lag at most the given number of offsets. Hosts the partition of the
+     * key locally within the lag, it is read without waiting. Otherwise the
+     * active instance and then the standby instances are asked, each answering
+     * from its own store only if it is within the lag.
+     *
+     * @param key The key of the message
+     * @param maxLag allowed offset lag, the configured default if {@code null},
+     * negative to read only from the active instance
+     * @return The value for the given key
+     * @throws StoreUnavailableException if no instance can serve the key within
+     * the lag
+     */
+    public V getEntry(K key, Long maxLag) {
+        long allowedLag = maxLag != null ? maxLag : defaultMaxLag;
+        if (allowedLag < 0) {
+            return getEntry(key);
+        }
+        Timer.Sample sample = queryMetrics.start();
+        V value = getEntryWithinLag(key, allowedLag);
+        queryMetrics.getEntry(sample, stateStoreName, "stale");
+        return value;
+    }
+
+    private V getEntryWithinLag(K key, long allowedLag) {
+        KeyQueryMetadata metadata = streams.queryMetadataForKey(stateStoreName, key, keySerializer);
+        if (metadata == KeyQueryMetadata.NOT_AVAILABLE) {
+            throw new StoreUnavailableException("No instance hosts store " + stateStoreName + " right now");
+        }
+
+        if (hostsPartition(metadata) && localLag(metadata.partition()) <= allowedLag) {
+            try {
+                return getStaleStore(metadata.partition()).get(key);
+            } catch (InvalidStateStoreException e) {
+                LOGGER.debug("Local store {} not queryable for partition {}", stateStoreName, metadata.partition(), e);
+            }
         }
 
-        LOGGER.info("Querying local store {} for key: {}", stateStoreName, key);
-        return waitUntilStoreIsQueryable().get(key);
+        Set<HostInfo> candidates = new LinkedHashSet<>();
+        candidates.add(metadata.activeHost());
+        candidates.addAll(metadata.standbyHosts());
+        for (HostInfo candidate : candidates) {
+            if (!isRemoteHost(candidate)) {
+                continue;
+            }
+            try {
+                return getStaleEntry.apply(getRestClientForUrl(candidate), key, allowedLag);
+            } catch (WebApplicationException e) {
+                int status = e.getResponse().getStatus();
+                if (status == Response.Status.NOT_FOUND.getStatusCode()) {
+                    return null;
+                }
+                if (status != Response.Status.SERVICE_UNAVAILABLE.getStatusCode()) {
+                    throw e;
+                }
+            } catch (ProcessingException e) {
+                LOGGER.debug("Instance {} not reachable for key {}", candidate, key, e);
+            }
+        }
+        throw new StoreUnavailableException("No instance serves key " + key + " of store " + stateStoreName + " within a lag of " + allowedLag);
+    }
+
+    /**
+     * Get one value by key from the local state-store only, if this instance
+     * hosts the partition of the key as active or standby and lags at most the
+     * given number of offsets.
+     *
+     * @param key The key of the message
+     * @param maxLag allowed offset lag
+     * @return The value for the given key
+     * @throws StoreUnavailableException if the local store cannot serve the key
+     * within the lag
+     */
+    public V getLocalEntry(K key, long maxLag) {
+        KeyQueryMetadata metadata = streams.queryMetadataForKey(stateStoreName, key, keySerializer);
+        if (metadata == KeyQueryMetadata.NOT_AVAILABLE || !hostsPartition(metadata)) {
+            throw new StoreUnavailableException("Key " + key + " is not hosted by this instance");
+        }
+        long lag = localLag(metadata.partition());
+        if (lag > maxLag) {
+            throw new StoreUnavailableException("Partition " + metadata.partition() + " of store " + stateStoreName + " lags " + lag + " offsets");
+        }
+        try {
+            return getStaleStore(metadata.partition()).get(key);
+        } catch (InvalidStateStoreException e) {
+            throw new StoreUnavailableException("Store " + stateStoreName + " is not queryable", e);
+        }
+    }
+
+    private boolean hostsPartition(KeyQueryMetadata metadata) {
+        return !isRemoteHost(metadata.activeHost()) || metadata.standbyHosts().contains(hostInfo);
+    }
+
+    /**
+     * Returns the last looked up lag of a local partition. Is the lookup older
+     * than the refresh interval, one caller starts a new lookup in the
+     * background and all callers keep using the old one until it is done.
+     *
+     * @param partition of the state-store
+     * @return offset lag of the partition, {@link Long#MAX_VALUE} if it is not
+     * hosted locally or no lookup finished yet
+     */
+    private long localLag(int partition) {
+        Map<Integer, LagInfo> lags = localLags;
+        if ((lags == null || System.nanoTime() - localLagsTimestamp > lagRefreshInterval.toNanos())
+                && localLagsRefreshing.compareAndSet(false, true)) {
+            lagExecutor.execute(this::refreshLocalLags);
+        }
+        LagInfo lag = lags != null ? lags.get(partition) : null;
+        return lag != null ? lag.offsetLag() : Long.MAX_VALUE;
+    }
+
+    private void refreshLocalLags() {
+        try {
+            localLags = streams.allLocalStorePartitionLags().getOrDefault(stateStoreName, Collections.emptyMap());
+            localLagsTimestamp = System.nanoTime();
+        } catch (RuntimeException e) {
+            LOGGER.debug("Cannot look up the local lags of store {}", stateStoreName, e);
+        } finally {
+            localLagsRefreshing.set(false);
+        }
+    }
+
+    private ReadOnlyKeyValueStore<K, V> getStaleStore(int partition) {
+        return streams.store(StoreQueryParameters.fromNameAndType(stateStoreName, QueryableStoreTypes.<K, V>keyValueStore())
+                .withPartition(partition)
+                .enableStaleStores());
+    }
+
+    /**
+     * Get many values out of the state-store by their keys. The keys are
+     * grouped by the instance hosting them, local keys are read directly from
+     * the state-store and every remote instance is asked once for all of its
+     * keys, all remote instances in parallel.
+     *
+     * @param keys The keys of the messages
+     * @param localOnly if true, read all keys from the local state-store
+     * @return The values found for the given keys, in the order of the keys
+     */
+    public CompletionStage<List<V>> getEntries(List<K> keys, boolean localOnly) {
+        LOGGER.debug("getEntries (keys={}, localOnly={})", keys.size(), localOnly);
+        List<K> localKeys = new ArrayList<>();
+        Map<HostInfo, List<K>> remoteKeys = new HashMap<>();
+        for (K key : new LinkedHashSet<>(keys)) {
+            if (localOnly) {
+                localKeys.add(key);
+                continue;
+            }
+            KeyQueryMetadata metadata = streams.queryMetadataForKey(stateStoreName, key, keySerializer);
+            if (metadata == KeyQueryMetadata.NOT_AVAILABLE) {
+                LOGGER.error("Neither this or other instances has access to requested key {}", key);
+            } else if (isRemoteHost(metadata.activeHost())) {
+                remoteKeys.computeIfAbsent(metadata.activeHost(), host -> new ArrayList<>()).add(key);
+            } else {
+                localKeys.add(key);
+            }
+        }
+
+        // trigger all async rest calls, one per remote instance
+        List<CompletableFuture<List<V>>> completionStages = remoteKeys.entrySet().stream()
+                .map(hostKeys -> getEntries.apply(getRestClientForUrl(hostKeys.getKey()), hostKeys.getValue()).toCompletableFuture())
+                .collect(Collectors.toList());
+
+        Map<K, V> values = new HashMap<>();
+        if (!localKeys.isEmpty()) {
+            ReadOnlyKeyValueStore<K, V> store = getQueryableStore();
+            for (K key : localKeys) {
+                V value = store.get(key);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+        }
+
+        return CompletableFuture.allOf(completionStages.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    completionStages.stream().map(CompletableFuture::join).flatMap(Collection::stream)
+                            .forEach(value -> values.put(getKey.apply(value), value));
+                    return keys.stream().map(values::get).filter(Objects::nonNull).collect(Collectors.toList());
+                });
     }
 
     /**
@@ -153,188 +634,566 @@ public class InteractiveQueriesBase<K, V, R> {
      * @return All values
      */
     public List<V> getAll(boolean localOnly) {
-        LOGGER.info("getAll (localOnly={})", localOnly);
-        List<V> values = new ArrayList<>();
+        LOGGER.debug("getAll (localOnly={})", localOnly);
+        return scatterGather(this::getLocalAll, this.getAll, localOnly);
+    }
+
+    /**
+     * Reads all values of the local state-store. If parallel scans are enabled
+     * and more than one partition of the state-store is assigned, every
+     * partition is scanned separately on the scan pool.
+     */
+    private List<V> getLocalAll() {
+        return scanLocal(() -> scan(getQueryableStore()), partition -> scan(getQueryableStore(partition)));
+    }
+
+    /**
+     * Reads the serialized values of the local state-store as they are
+     * stored, see {@link #getLocalStoredEntry(Object)}. Partitions are scanned
+     * in parallel like in {@link #getAll(boolean)}.
+     *
+     * @return All stored values of the local state-store
+     */
+    protected List<byte[]> getLocalStoredAll() {
+        return scanLocal(() -> queryableStores.rawValueStore(stateStoreName).all(),
+                partition -> queryableStores.rawValueStore(stateStoreName, partition).all());
+    }
+
+    /**
+     * Scans the local state-store at once, or every local partition of it on
+     * the scan pool if parallel scans are enabled and more than one partition
+     * is assigned.
+     *
+     * @param <T> type of the scanned values
+     * @param scanAll scans all local partitions
+     * @param scanPartition scans one local partition
+     * @return values of all local partitions
+     */
+    private <T> List<T> scanLocal(Supplier<List<T>> scanAll, IntFunction<List<T>> scanPartition) {
+        Set<Integer> partitions = localStorePartitions();
+        if (scanExecutor == null || partitions.size() <= 1) {
+            return scanAll.get();
+        }
+        List<CompletableFuture<List<T>>> scans = partitions.stream()
+                .map(partition -> CompletableFuture.supplyAsync(() -> scanPartition.apply(partition), scanExecutor))
+                .collect(Collectors.toList());
+        List<T> values = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<T>> scan : scans) {
+                values.addAll(scan.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return values;
+    }
 
-        // get data from local state-store
-        LOGGER.info("get all from local state-store");
-        KeyValueIterator<K, V> iterator = waitUntilStoreIsQueryable().all();
-        while (iterator.hasNext()) {
-            values.add(iterator.next().value);
+    private List<V> scan(ReadOnlyKeyValueStore<K, V> store) {
+        List<V> values = new ArrayList<>();
+        try (KeyValueIterator<K, V> iterator = store.all()) {
+            while (iterator.hasNext()) {
+                values.add(iterator.next().value);
+            }
         }
+        return values;
+    }
 
+    /**
+     * Runs a query against the local state-stores and, if the state-store is
+     * distributed across more than one server, against all other instances in
+     * parallel, and collects all results.
+     *
+     * @param <T> type of the results
+     * @param localQuery query against the local state-stores
+     * @param remoteQuery same query against another instance, must only query
+     * the local state-stores of the called instance
+     * @param localOnly if true, only run the local query
+     * @return results of all instances, local results first
+     */
+    protected <T> List<T> scatterGather(Supplier<List<T>> localQuery, Function<R, CompletionStage<List<T>>> remoteQuery,
+            boolean localOnly) {
         if (localOnly) {
             // stop after fetching local data
-            return values;
+            return timedLocalQuery(localQuery);
         }
 
-        // get metadata for state-store which can be distributed across different servers
-        Collection<StreamsMetadata> allStreamsMetadata = streams.allMetadataForStore(this.stateStoreName);
+        // trigger all async rest calls before querying locally
+        List<CompletableFuture<List<T>>> completionStages = streams.streamsMetadataForStore(this.stateStoreName).stream()
+                .filter(streamsMetadata -> isRemoteHost(streamsMetadata.hostInfo()))
+                .map(streamsMetadata -> timedRemoteQuery(streamsMetadata.hostInfo(), remoteQuery))
+                .collect(Collectors.toList());
+
+        List<T> values = new ArrayList<>(timedLocalQuery(localQuery));
+
+        // wait for all async calls to finish
+        completionStages.stream().map(CompletableFuture::join).forEach(values::addAll);
+        return values;
+    }
+
+    private <T> List<T> timedLocalQuery(Supplier<List<T>> localQuery) {
+        Timer.Sample sample = queryMetrics.start();
+        List<T> values = localQuery.get();
+        queryMetrics.localQuery(sample, stateStoreName, values.size());
+        return values;
+    }
+
+    private <T> CompletableFuture<List<T>> timedRemoteQuery(HostInfo hostInfo, Function<R, CompletionStage<List<T>>> remoteQuery) {
+        Timer.Sample sample = queryMetrics.start();
+        return remoteQuery.apply(getRestClientForUrl(hostInfo)).toCompletableFuture()
+                .whenComplete((values, e) -> queryMetrics.remoteQuery(sample, stateStoreName, hostInfo, values != null ? values.size() : -1));
+    }
+
+    /**
+     * Get one page of values of the state-store (local or distributed), ordered
+     * by the serialized key. Every instance contributes at most {@code limit}
+     * values from each of its partitions, so the memory needed for one page
+     * does not depend on the size of the state-store.
+     *
+     * @param after cursor, only keys greater than this key are returned. If
+     * null, the first page is returned
+     * @param limit maximum number of values in the page
+     * @param localOnly if true, return only values of the local state-store
+     * @return Values of the page, ordered by their key
+     */
+    public List<V> getPage(K after, int limit, boolean localOnly) {
+        LOGGER.debug("getPage (after={}, limit={}, localOnly={})", after, limit, localOnly);
+        List<KeyValue<K, V>> entries = new ArrayList<>();
 
-        // if state-store is distributed across more than one servers
-        if (allStreamsMetadata.size() > 1) {
-            LOGGER.info("request all remote servers");
+        // each local partition is sorted on its own, a range over all partitions is not
+        for (Integer partition : localStorePartitions()) {
+            entries.addAll(getLocalPage(partition, after, limit));
+        }
 
-            // trigger all async rest calls
-            List<CompletableFuture<List<V>>> completionStages = allStreamsMetadata.stream()
+        if (!localOnly) {
+            List<CompletableFuture<List<V>>> completionStages = streams.streamsMetadataForStore(this.stateStoreName).stream()
                     .filter(streamsMetadata -> isRemoteHost(streamsMetadata.hostInfo()))
-                    .map(streamsMetadata -> getAllFromRemote(streamsMetadata.hostInfo()).toCompletableFuture())
+                    .map(streamsMetadata -> getPageFromRemote(streamsMetadata.hostInfo(), after, limit).toCompletableFuture())
                     .collect(Collectors.toList());
+            completionStages.stream().map(CompletableFuture::join).flatMap(Collection::stream)
+                    .forEach(value -> entries.add(KeyValue.pair(getKey.apply(value), value)));
+        }
 
-            // wait for all async calls to finish
-            List<V> remoteValues = completionStages.stream().map(CompletableFuture::join).flatMap(Collection::stream)
-                    .collect(Collectors.toList());
+        return entries.stream()
+                .sorted(Comparator.comparing((KeyValue<K, V> entry) -> Bytes.wrap(keySerializer.serialize(stateStoreName, entry.key))))
+                .limit(limit)
+                .map(entry -> entry.value)
+                .collect(Collectors.toList());
+    }
 
-            LOGGER.info("add remote data to result");
-            values.addAll(remoteValues);
+    /**
+     * Writes all values of the state-store (local or distributed) as
+     * newline-delimited JSON to the given stream. Values are written one by one
+     * while iterating the state-store, remote instances are streamed one after
+     * the other, so the whole result is never held in memory.
+     *
+     * @param localOnly if true, write only values of the local state-store
+     * @param out stream the values are written to
+     * @throws IOException if writing to the stream fails
+     */
+    public void streamAll(boolean localOnly, OutputStream out) throws IOException {
+        LOGGER.debug("streamAll (localOnly={})", localOnly);
+        try (KeyValueIterator<K, V> iterator = getQueryableStore().all()) {
+            while (iterator.hasNext()) {
+                out.write(objectMapper.writeValueAsBytes(iterator.next().value));
+                out.write(NEWLINE);
+            }
         }
 
-        return values;
+        if (localOnly) {
+            return;
+        }
+
+        for (StreamsMetadata streamsMetadata : streams.streamsMetadataForStore(this.stateStoreName)) {
+            if (isRemoteHost(streamsMetadata.hostInfo())) {
+                try (InputStream remote = this.streamAll.apply(getRestClientForUrl(streamsMetadata.hostInfo()))) {
+                    remote.transferTo(out);
+                }
+            }
+        }
+        out.flush();
     }
 
-    private V getOneFromRemote(HostInfo hostInfo, K key) {
+    private List<KeyValue<K, V>> getLocalPage(int partition, K after, int limit) {
+        List<KeyValue<K, V>> entries = new ArrayList<>();
+        try (KeyValueIterator<K, V> iterator = getQueryableStore(partition).range(after, null)) {
+            while (iterator.hasNext() && entries.size() < limit) {
+                KeyValue<K, V> entry = iterator.next();
+                // the range is inclusive, the cursor itself was part of the previous page
+                if (!entry.key.equals(after)) {
+                    entries.add(entry);
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * @return partitions of the active tasks of this instance that host the
+     * state-store, i.e. read the input topics. Tasks reading repartition topics
+     * host other state-stores only.
+     */
+    protected Set<Integer> localStorePartitions() {
+        return streams.metadataForLocalThreads().stream()
+                .flatMap(threadMetadata -> threadMetadata.activeTasks().stream())
+                .filter(taskMetadata -> taskMetadata.topicPartitions().stream()
+                        .anyMatch(topicPartition -> sourceTopics.contains(topicPartition.topic())))
+                .map(taskMetadata -> taskMetadata.taskId().partition())
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private CompletionStage<List<V>> getPageFromRemote(HostInfo hostInfo, K after, int limit) {
         R restClient = getRestClientForUrl(hostInfo);
-        return this.getEntry.apply(restClient, key);
+        return this.getPage.apply(restClient, after, limit);
     }
 
-    private CompletionStage<List<V>> getAllFromRemote(HostInfo hostInfo) {
+    private V getOneFromRemote(HostInfo hostInfo, K key) {
         R restClient = getRestClientForUrl(hostInfo);
-        return this.getAll.apply(restClient);
+        return this.getEntry.apply(restClient, key);
     }
 
     private R getRestClientForUrl(HostInfo hostInfo) {
-        String url = String.format("http://%s:%d", hostInfo.host(), hostInfo.port());
-        LOGGER.info("REST client for URL: {}", url);
-        try {
-            if (!restClientCache.containsKey(url)) {
-                R restClient = this.getRestClient.apply(new URL(url));
-                restClientCache.put(url, restClient);
-            }
-            return restClientCache.get(url);
-        } catch (MalformedURLException e) {
-            throw new IllegalArgumentException(e);
-        }
+        return restClients.get(hostInfo);
+    }
+
+    /**
+     * @return cache for values read from other instances, disabled unless
+     * overridden
+     */
+    protected NearCache<K, V> getNearCache() {
+        return NearCache.disabled();
     }
 
-    private boolean isRemoteHost(HostInfo hostInfo) {
+    protected boolean isRemoteHost(HostInfo hostInfo) {
         return !this.hostInfo.equals(hostInfo);
     }
 
-    private ReadOnlyKeyValueStore<K, V> waitUntilStoreIsQueryable() {
-        for (int i = 0; i < 100; i++) {
-            try {
-                return streams.store(StoreQueryParameters.fromNameAndType(stateStoreName, QueryableStoreTypes.keyValueStore()));
-            } catch (InvalidStateStoreException | IllegalStateException e2) {
-                LOGGER.warn(
-                        "Invalid State Store Error while fetching the kafkaStream store: {}. A retry will happen after 300 ms",
-                        stateStoreName, e2);
-                try {
-                    Thread.sleep(300);
-                } catch (InterruptedException e) {
-                    // If we get interrupted, we simply skip the sleep time
-                    LOGGER.error(INTERRUPTED_WHILE_WAITING_FOR_STREAMS_STORE_TO_BE_READY);
-                    Thread.currentThread().interrupt();
-                    throw new IllegalStateException(INTERRUPTED_WHILE_WAITING_FOR_STREAMS_STORE_TO_BE_READY);
-                }
-            }
-        }
-        throw new IllegalStateException(
-                "Invalid State Store Error while fetching the kafkaStream store. The service is not available at the moment");
+    /**
+     * @return the local state-store of this entity
+     * @throws StoreUnavailableException if the store is not queryable right now
+     */
+    protected ReadOnlyKeyValueStore<K, V> getQueryableStore() {
+        return queryableStores.keyValueStore(stateStoreName);
+    }
+
+    private ReadOnlyKeyValueStore<K, V> getQueryableStore(int partition) {
+        return queryableStores.keyValueStore(stateStoreName, partition);
+    }
+
+    /**
+     * Returns another key-value state-store of the topology, e.g. an index of
+     * the state-store of this entity.
+     *
+     * @param <SK> key type of the state-store
+     * @param <SV> value type of the state-store
+     * @param storeName name of the state-store
+     * @return the local state-store
+     * @throws StoreUnavailableException if the store is not queryable right now
+     */
+    protected <SK, SV> ReadOnlyKeyValueStore<SK, SV> getQueryableStore(String storeName) {
+        return queryableStores.keyValueStore(storeName);
     }
 
     /**
-     * Checks the state store if the given entry is already present in our state
-     * store. If data has been modified, the Streams API must poll the new
-     * messages in order for us to see the latest change that has been done via
-     * publishing a new message to the backing topic. This can take a short
-     * amount of time since publishing the message and receiving it are two
-     * decoupled operations.
+     * Function fetching one key-ordered page of values from another instance.
+     *
+     * @param <R> Rest-Client interface
+     * @param <K> key type of the concrete entity
+     * @param <V> value type of the concrete entity
+     */
+    @FunctionalInterface
+    public interface PageFunction<R, K, V> {
+
+        CompletionStage<List<V>> apply(R restClient, K after, int limit);
+    }
+
+    /**
+     * Function reading one value by key from the local, possibly stale
+     * state-store of another instance.
+     *
+     * @param <R> Rest-Client interface
+     * @param <K> key type of the concrete entity
+     * @param <V> value type of the concrete entity
+     */
+    @FunctionalInterface
+    public interface StaleEntryFunction<R, K, V> {
+
+        V apply(R restClient, K key, long maxLag);
+    }
+
+    /**
+     * Function asking another instance for the outcomes of records of the
+     * partitions it hosts.
+     *
+     * @param <R> Rest-Client interface
+     */
+    @FunctionalInterface
+    public interface OutcomesFunction<R> {
+
+        CompletionStage<List<WriteOutcome>> apply(R restClient, List<RecordPosition> positions, long timeout);
+    }
+
+    /**
+     * Sends a record with the producer of an outgoing channel, which is
+     * configured like the channel. Unlike an emitter, the producer reports
+     * the partition and offset of the record.
+     *
+     * @param <T> value type of the channel
+     * @param channel name of the outgoing channel
+     * @param record to send
+     * @return completes with the metadata of the record once the broker
+     * acknowledged it, or exceptionally if it could not be sent
+     */
+    public <T> CompletionStage<RecordMetadata> send(String channel, ProducerRecord<K, T> record) {
+        Timer.Sample sample = queryMetrics.start();
+        return kafkaClientService.<K, T>getProducer(channel).send(record)
+                .subscribeAsCompletionStage()
+                .whenComplete((metadata, e) -> queryMetrics.emitterSend(sample, channel, e == null));
+    }
+
+    /**
+     * Waits until the given entry is present in the state store. If data has
+     * been modified, the Streams API must poll the new messages in order for us
+     * to see the latest change that has been done via publishing a new message
+     * to the backing topic. Instead of polling the state store, the record is
+     * identified by the partition and offset the broker acknowledged, and the
+     * instance hosting the partition reports its outcome as soon as its
+     * topology has processed it, see {@link AppliedRecordRegistry}.
      *
      * @param key to check for
      * @param entry that should be checked for existence
-     * @return {@code true} if the entry is present as expected, otherwise
-     * {@code false}.
+     * @param written completes with the metadata of the record, see
+     * {@link #send(String, ProducerRecord)}
+     * @return completes with {@code true} if the entry is present as expected,
+     * otherwise {@code false}.
      */
-    public boolean verifyEntryInStateStore(K key, V entry) {
-        int remainderRetries = 10;
-        for (int i = 0; i < 10; i++) {
-            --remainderRetries;
-            try {
-                V entryFromStateStore = waitUntilStoreIsQueryable().get(key);
-                if (!entry.equals(entryFromStateStore)) {
-                    throw new IllegalStateException();
-                }
-                LOGGER.warn("Found the new entry in our materialized view.");
-                return true;
-            } catch (InvalidStateStoreException | IllegalStateException e2) {
-                LOGGER.warn(buildMessage(remainderRetries), e2.getMessage());
-                try {
-                    Thread.sleep(300);
-                } catch (InterruptedException e) {
-                    // If we get interrupted, we simply skip the sleep time
-                    LOGGER.error(INTERRUPTED_WHILE_WAITING_FOR_STREAMS_STORE_TO_BE_READY);
-                    Thread.currentThread().interrupt();
-                    throw new IllegalStateException(INTERRUPTED_WHILE_WAITING_FOR_STREAMS_STORE_TO_BE_READY);
-                }
+    public CompletionStage<Boolean> awaitEntryInStateStore(K key, V entry, CompletionStage<RecordMetadata> written) {
+        return awaitWritten(key, written, entry::equals, value -> false);
+    }
+
+    /**
+     * Waits until the given entry of a conditional write is present in the
+     * state store, see
+     * {@link #awaitEntryInStateStore(Object, Object, CompletionStage)}. The
+     * instance hosting the key reports a rejection right away.
+     *
+     * @param key to check for
+     * @param entry that should be checked for existence
+     * @param written completes with the metadata of the record
+     * @param conflicting whether the value of the state-store shows that the
+     * write has been rejected or overwritten, used if the outcome of the record
+     * is unknown
+     * @return completes with {@code true} if the entry is present as expected,
+     * {@code false} if it is not present in time, or exceptionally with a
+     * {@link WriteConflictException} if it has been rejected
+     */
+    public CompletionStage<Boolean> awaitConditionalEntryInStateStore(K key, V entry, CompletionStage<RecordMetadata> written,
+            Predicate<V> conflicting) {
+        return awaitWritten(key, written, entry::equals, conflicting);
+    }
+
+    /**
+     * Waits until the given entry is no longer present in the state store. The
+     * deletion is done via publishing a tombstone-message to the backing topic
+     * with the corresponding key, see
+     * {@link #awaitEntryInStateStore(Object, Object, CompletionStage)}.
+     *
+     * @param key to check for
+     * @param written completes with the metadata of the tombstone
+     * @return completes with {@code true} if the entry is no longer present as
+     * expected, otherwise {@code false}.
+     */
+    public CompletionStage<Boolean> awaitEntryIsGoneFromStateStore(K key, CompletionStage<RecordMetadata> written) {
+        return awaitWritten(key, written, Objects::isNull, value -> false);
+    }
+
+    /**
+     * Waits until all given entries are present in the state store, see
+     * {@link #awaitEntryInStateStore(Object, Object, CompletionStage)}. The
+     * deadline of an entry starts once its record is acknowledged, so sending
+     * a large batch does not use up the time to confirm it. An entry whose
+     * record could not be sent is not present right away. The outcomes of the
+     * records of another instance are asked for with one request, once all of
+     * them are acknowledged.
+     *
+     * @param entries that should be checked for existence, by key
+     * @param written complete with the metadata of the record of each key
+     * @return completes with whether each entry is present as expected, by key
+     */
+    public CompletionStage<Map<K, Boolean>> awaitEntriesInStateStore(Map<K, V> entries,
+            Map<K, ? extends CompletionStage<RecordMetadata>> written) {
+        Map<K, CompletableFuture<Boolean>> confirmations = new LinkedHashMap<>();
+        Map<HostInfo, List<K>> remoteKeys = new HashMap<>();
+        entries.forEach((key, entry) -> {
+            HostInfo host = activeHost(key);
+            if (isRemoteHost(host)) {
+                remoteKeys.computeIfAbsent(host, h -> new ArrayList<>()).add(key);
+            } else {
+                confirmations.put(key, confirm(key, written.get(key), this::localOutcome, entry::equals, value -> false));
             }
-        }
-        LOGGER.warn("Could not find the new entry in our materialized view, even after retries.");
-        return false;
+        });
+        remoteKeys.forEach((host, hostKeys) -> {
+            CompletableFuture<Map<K, WriteOutcome>> outcomes = CompletableFuture.allOf(hostKeys.stream()
+                    .map(key -> written.get(key).toCompletableFuture().handle((metadata, e) -> null))
+                    .toArray(CompletableFuture[]::new))
+                    .thenCompose(ignored -> remoteOutcomes(host, hostKeys, written));
+            hostKeys.forEach(key -> confirmations.put(key, confirm(key, written.get(key),
+                    metadata -> outcomes.thenApply(byKey -> byKey.get(key)), entries.get(key)::equals, value -> false)));
+        });
+        return CompletableFuture.allOf(confirmations.values().toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    Map<K, Boolean> results = new LinkedHashMap<>();
+                    entries.keySet().forEach(key -> results.put(key, confirmations.get(key).join()));
+                    return results;
+                });
     }
 
     /**
-     * Creates the warning message if the events has not yet been added to the
-     * state-store
+     * Waits for the outcomes of records of the partitions this instance hosts,
+     * called by other instances on behalf of their writers.
      *
-     * @param remainderRetries The number of retries left check is an entry has
-     * been added to the state-store
-     * @return The message for the log output.
+     * @param positions of the records
+     * @param timeout maximum time to wait in milliseconds, at most the
+     * configured confirmation timeout
+     * @return the outcome of every record, {@link WriteOutcome#UNKNOWN} if it
+     * has not been processed in time
      */
-    private String buildMessage(int remainderRetries) {
-        StringBuilder messageBuilder = new StringBuilder("Could not yet find the new entry in our materialized view.");
-        if (remainderRetries > 0) {
-            messageBuilder.append(" Will try again ");
-            messageBuilder.append(remainderRetries);
-            messageBuilder.append(remainderRetries == 1 ? " more time." : " more times.");
+    public CompletionStage<List<WriteOutcome>> awaitLocalOutcomes(List<RecordPosition> positions, long timeout) {
+        long maxWait = Math.min(timeout, writeConfirmationTimeout.toMillis());
+        List<CompletableFuture<WriteOutcome>> outcomes = positions.stream()
+                .map(position -> appliedRecords.awaitOutcome(stateStoreName, position.getPartition(), position.getOffset())
+                        .completeOnTimeout(WriteOutcome.UNKNOWN, maxWait, TimeUnit.MILLISECONDS))
+                .collect(Collectors.toList());
+        return CompletableFuture.allOf(outcomes.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> outcomes.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
+    private CompletionStage<Boolean> awaitWritten(K key, CompletionStage<RecordMetadata> written, Predicate<V> expected,
+            Predicate<V> conflicting) {
+        HostInfo host = activeHost(key);
+        if (isRemoteHost(host)) {
+            return confirm(key, written, metadata -> remoteOutcomes(host, Collections.singletonList(key), Collections.singletonMap(key, written))
+                    .thenApply(byKey -> byKey.get(key)), expected, conflicting);
         }
-        return messageBuilder.toString();
+        return confirm(key, written, this::localOutcome, expected, conflicting);
+    }
+
+    /**
+     * @return active host of the key, this instance if no instance hosts it
+     * right now
+     */
+    private HostInfo activeHost(K key) {
+        KeyQueryMetadata metadata = streams.queryMetadataForKey(stateStoreName, key, keySerializer);
+        return metadata != KeyQueryMetadata.NOT_AVAILABLE ? metadata.activeHost() : hostInfo;
+    }
+
+    /**
+     * Confirms a write by the outcome of its record. A record that could not
+     * be sent is not written, a record with an unknown outcome is confirmed by
+     * reading the state-store.
+     */
+    private CompletableFuture<Boolean> confirm(K key, CompletionStage<RecordMetadata> written,
+            Function<RecordMetadata, CompletionStage<WriteOutcome>> outcome, Predicate<V> expected, Predicate<V> conflicting) {
+        Timer.Sample sample = queryMetrics.start();
+        return written.toCompletableFuture()
+                .handle((metadata, e) -> {
+                    if (e != null) {
+                        LOGGER.warn("Record for key {} could not be sent", key, e);
+                    }
+                    return metadata;
+                })
+                .thenCompose(metadata -> {
+                    if (metadata == null) {
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    return outcome.apply(metadata).thenCompose(result -> {
+                        LOGGER.debug("Record for key {} at offset {} of partition {} {}", key, metadata.offset(), metadata.partition(), result);
+                        return resolve(key, result, expected, conflicting);
+                    });
+                })
+                .whenComplete((visible, e) -> queryMetrics.writeVisible(sample, stateStoreName, Boolean.TRUE.equals(visible)));
+    }
+
+    private CompletionStage<WriteOutcome> localOutcome(RecordMetadata metadata) {
+        return appliedRecords.awaitOutcome(stateStoreName, metadata.partition(), metadata.offset())
+                .completeOnTimeout(WriteOutcome.UNKNOWN, writeConfirmationTimeout.toMillis(), TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Checks the state store if the given entry is no longer present in our
-     * state store. If data has been modified, the Streams API must poll the new
-     * messages in order for us to see the latest change that has been done via
-     * publishing a new tombstone-message to the backing topic with the
-     * corresponding key. This can take a short amount of time since publishing
-     * the message and receiving it are two decoupled operations.
+     * Asks another instance for the outcomes of the records of the given keys
+     * with one request. Keys whose record could not be sent are left out.
      *
-     * @param key to check for
-     * @return {@code true} if the entry is no longer present as expected,
-     * otherwise {@code false}.
+     * @return outcomes by key, {@link WriteOutcome#UNKNOWN} if the instance
+     * cannot be asked
      */
-    public boolean verifyEntryIsGoneFromStateStore(K key) {
-        for (int i = 0; i < 10; i++) {
-            try {
-                V entryFromStateStore = waitUntilStoreIsQueryable().get(key);
-                if (entryFromStateStore != null) {
-                    throw new IllegalStateException();
-                }
-                LOGGER.warn("Entry no longer present in state store...");
-                return true;
-            } catch (InvalidStateStoreException | IllegalStateException e2) {
-                LOGGER.warn("State store not queryable or Entry could still be found.", e2);
-                try {
-                    Thread.sleep(300);
-                } catch (InterruptedException e) {
-                    // If we get interrupted, we simply skip the sleep time
-                    LOGGER.error(INTERRUPTED_WHILE_WAITING_FOR_STREAMS_STORE_TO_BE_READY);
-                    Thread.currentThread().interrupt();
-                    throw new IllegalStateException(INTERRUPTED_WHILE_WAITING_FOR_STREAMS_STORE_TO_BE_READY);
-                }
+    private CompletableFuture<Map<K, WriteOutcome>> remoteOutcomes(HostInfo host, List<K> keys,
+            Map<K, ? extends CompletionStage<RecordMetadata>> written) {
+        Map<K, RecordPosition> positions = new LinkedHashMap<>();
+        for (K key : keys) {
+            CompletableFuture<RecordMetadata> metadata = written.get(key).toCompletableFuture();
+            if (!metadata.isCompletedExceptionally()) {
+                positions.put(key, new RecordPosition(metadata.join().partition(), metadata.join().offset()));
+            }
+        }
+        if (positions.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+        return getOutcomes.apply(getRestClientForUrl(host), new ArrayList<>(positions.values()), writeConfirmationTimeout.toMillis())
+                .toCompletableFuture()
+                .handle((outcomes, e) -> {
+                    if (e != null) {
+                        LOGGER.debug("Instance {} cannot report the outcomes of {} records", host, positions.size(), e);
+                    }
+                    Map<K, WriteOutcome> byKey = new HashMap<>();
+                    Iterator<WriteOutcome> outcome = outcomes != null ? outcomes.iterator() : Collections.emptyIterator();
+                    positions.keySet().forEach(key -> byKey.put(key, outcome.hasNext() ? outcome.next() : WriteOutcome.UNKNOWN));
+                    return byKey;
+                });
+    }
+
+    private CompletionStage<Boolean> resolve(K key, WriteOutcome outcome, Predicate<V> expected, Predicate<V> conflicting) {
+        if (outcome == WriteOutcome.APPLIED) {
+            return CompletableFuture.completedFuture(true);
+        }
+        if (outcome == WriteOutcome.REJECTED) {
+            return CompletableFuture.failedFuture(new WriteConflictException(
+                    "Write of key " + key + " rejected, store " + stateStoreName + " does not match its version"));
+        }
+        // we have not been told, e.g. during a rebalance, so ask the state store
+        queryMetrics.writeOutcomeUnknown(stateStoreName);
+        return CompletableFuture.supplyAsync(() -> {
+            V value = readForConfirmation(key);
+            boolean found = expected.test(value);
+            if (!found && conflicting.test(value)) {
+                throw new WriteConflictException("Write of key " + key + " in store " + stateStoreName + " rejected or overwritten");
+            }
+            if (!found) {
+                LOGGER.warn("Record for key {} not applied to our materialized view within {}", key, writeConfirmationTimeout);
+            }
+            return found;
+        }, confirmationExecutor);
+    }
+
+    /**
+     * Reads a key from the state-store of its active instance, bypassing the
+     * near cache.
+     */
+    private V readForConfirmation(K key) {
+        HostInfo host = activeHost(key);
+        return isRemoteHost(host) ? getOneFromRemoteOrNull(host, key) : getQueryableStore().get(key);
+    }
+
+    private V getOneFromRemoteOrNull(HostInfo hostInfo, K key) {
+        try {
+            return getOneFromRemote(hostInfo, key);
+        } catch (WebApplicationException e) {
+            if (e.getResponse().getStatus() == Response.Status.NOT_FOUND.getStatusCode()) {
+                return null;
             }
+            throw e;
         }
-        LOGGER.warn("Entry still present in our materialized view, even after retries.");
-        return false;
     }
 
     /**
@@ -346,14 +1205,10 @@ public class InteractiveQueriesBase<K, V, R> {
      * type
      * @return {@link Response} whether the entity was deleted or not
      */
-    public Response deleteEntry(K key, String topic, InteractiveQueriesBase<K, V, R> iq) {
-        OutgoingKafkaRecordMetadata<String> metadata = OutgoingKafkaRecordMetadata.<String>builder()
-                .withKey((String) key).withTopic(topic).build();
-        allToNullChannel.send(Message.of("tombstone", Metadata.of(metadata)));
-        // Verify that our deleted entity already caused the deletion in our state store
-        Response.ResponseBuilder response = iq.verifyEntryIsGoneFromStateStore(key)
-                ? Response.noContent() : Response.status(Response.Status.NOT_ACCEPTABLE);
-        return response.build();
+    public CompletionStage<Response> deleteEntry(K key, String topic, InteractiveQueriesBase<K, V, R> iq) {
+        CompletionStage<RecordMetadata> written = send(TOMBSTONE_CHANNEL, new ProducerRecord<>(topic, key, "tombstone"));
+        return iq.awaitEntryIsGoneFromStateStore(key, written).thenApply(successful -> successful
+                ? Response.noContent().build() : Response.status(Response.Status.NOT_ACCEPTABLE).build());
     }
 
 }
@@ -0,0 +1,25 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import com.bmw.cloudadoption.vehicleorder.boundary.ResourceBase;
+
+import java.util.List;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Requests JSON instead of the binary format from other instances, if the
+ * binary format is disabled.
+ */
+public class JsonWireFormatFilter implements ClientRequestFilter {
+
+    @Override
+    public void filter(ClientRequestContext requestContext) {
+        List<Object> accept = requestContext.getHeaders().get(HttpHeaders.ACCEPT);
+        if (accept != null && accept.stream().anyMatch(mediaType -> String.valueOf(mediaType).contains(ResourceBase.APPLICATION_VEHICLE_ORDER_BINARY))) {
+            requestContext.getHeaders().putSingle(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON);
+        }
+    }
+}
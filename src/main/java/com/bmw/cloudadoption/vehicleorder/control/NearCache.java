@@ -0,0 +1,154 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import com.bmw.cloudadoption.vehicleorder.entity.NearCacheStats;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Bounded cache of values read from other instances. Entries are evicted by
+ * size and time-to-live, and are kept up to date by {@link #update} with the
+ * records of the topic backing the state-store, so a cached value is at most
+ * as old as the consumer lag of this instance.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+public class NearCache<K, V> {
+
+    private static final NearCache<?, ?> DISABLED = new NearCache<>();
+
+    // null if the cache is disabled
+    private final Cache<K, V> cache;
+
+    // number of updates seen, a value loaded while an update arrived may be stale
+    private final AtomicLong updates = new AtomicLong();
+
+    private NearCache() {
+        this.cache = null;
+    }
+
+    /**
+     * @param maxSize maximum number of cached values
+     * @param timeToLive time after which a cached value is evicted
+     */
+    public NearCache(long maxSize, Duration timeToLive) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return a cache that caches nothing
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> NearCache<K, V> disabled() {
+        return (NearCache<K, V>) DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Returns the cached value for the key, or loads and caches it.
+     * {@code null} values are not cached.
+     *
+     * @param key of the value
+     * @param loader reading the value from its instance
+     * @return the value for the key
+     */
+    public V get(K key, Function<K, V> loader) {
+        if (cache == null) {
+            return loader.apply(key);
+        }
+        V value = cache.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        long seenUpdates = updates.get();
+        value = loader.apply(key);
+        // do not cache a value that may have been overwritten while we were loading it
+        if (value != null && updates.get() == seenUpdates) {
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Applies a record of the topic: a cached value is replaced by the new
+     * value, or removed if the record is a tombstone.
+     *
+     * @param key of the record
+     * @param value of the record, {@code null} for tombstones
+     */
+    public void update(K key, V value) {
+        if (cache == null) {
+            return;
+        }
+        updates.incrementAndGet();
+        if (value == null) {
+            cache.invalidate(key);
+        } else {
+            cache.asMap().computeIfPresent(key, (k, cached) -> value);
+        }
+    }
+
+    /**
+     * Applies a conditional record of the topic, which the instance hosting
+     * the key may have rejected. A cached value is replaced by the new value
+     * only if it fulfills the condition, otherwise it is removed and loaded
+     * again on the next read.
+     *
+     * @param key of the record
+     * @param value of the record, {@code null} for tombstones
+     * @param condition the cached value has to fulfill for the record to be
+     * applied
+     */
+    public void update(K key, V value, Predicate<V> condition) {
+        if (cache == null) {
+            return;
+        }
+        updates.incrementAndGet();
+        if (value == null) {
+            cache.invalidate(key);
+        } else {
+            // returning null removes the cached value
+            cache.asMap().computeIfPresent(key, (k, cached) -> condition.test(cached) ? value : null);
+        }
+    }
+
+    /**
+     * Exports the statistics of the cache as metrics.
+     *
+     * @param registry of the metrics
+     * @param name of the cache
+     */
+    public void bindTo(MeterRegistry registry, String name) {
+        if (cache != null) {
+            CaffeineCacheMetrics.monitor(registry, cache, name);
+        }
+    }
+
+    /**
+     * @return hit, miss and eviction statistics of the cache
+     */
+    public NearCacheStats stats() {
+        if (cache == null) {
+            return new NearCacheStats(false, 0, 0, 0, 0, 0);
+        }
+        CacheStats stats = cache.stats();
+        return new NearCacheStats(true, cache.estimatedSize(), stats.hitCount(), stats.missCount(), stats.evictionCount(),
+                stats.hitRate());
+    }
+}
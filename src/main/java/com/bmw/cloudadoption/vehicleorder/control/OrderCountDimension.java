@@ -0,0 +1,48 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import com.bmw.cloudadoption.vehicleorder.TopologyProducer;
+
+import java.util.Locale;
+
+/**
+ * Dimensions the topology continuously counts vehicle orders by.
+ */
+public enum OrderCountDimension {
+
+    /**
+     * Orders per plantId.
+     */
+    PLANT(TopologyProducer.PLANT_COUNT_STORE_NAME),
+    /**
+     * Orders per assembly line, grouped by plantId, areaCode and logisticLevel.
+     */
+    ASSEMBLY_LINE(TopologyProducer.ASSEMBLY_LINE_COUNT_STORE_NAME),
+    /**
+     * Orders per planned start date, grouped by plantId and day.
+     */
+    PLANNED_DAY(TopologyProducer.PLANNED_DAY_COUNT_STORE_NAME);
+
+    private final String storeName;
+
+    OrderCountDimension(String storeName) {
+        this.storeName = storeName;
+    }
+
+    /**
+     * @return name of the state-store containing the counts
+     */
+    public String getStoreName() {
+        return storeName;
+    }
+
+    /**
+     * Used for query parameters, accepts e.g. {@code plant} or
+     * {@code assembly_line}.
+     *
+     * @param value name of the dimension, case insensitive
+     * @return the dimension
+     */
+    public static OrderCountDimension fromString(String value) {
+        return valueOf(value.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,134 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.state.HostInfo;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Micrometer instrumentation of the query and write paths, exported via
+ * Prometheus. Timers publish percentile histograms, so latencies can be
+ * aggregated over all instances.
+ */
+@ApplicationScoped
+public class QueryMetrics {
+
+    private static final String PREFIX = "vehicleorder.";
+    private static final String STORE = "store";
+    private static final String HOST = "host";
+    private static final String OUTCOME = "outcome";
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    StreamsStateListener streamsStateListener;
+
+    @PostConstruct
+    void init() {
+        registry.gauge(PREFIX + "streams.running", streamsStateListener,
+                listener -> listener.getState() == KafkaStreams.State.RUNNING ? 1 : 0);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * @param sample started before the lookup
+     * @param store queried state-store
+     * @param location local, remote or stale
+     */
+    public void getEntry(Timer.Sample sample, String store, String location) {
+        sample.stop(timer("get-entry", STORE, store, "location", location));
+    }
+
+    /**
+     * @param sample started before the local part of a fan-out query
+     * @param store queried state-store
+     * @param entries number of entries read
+     */
+    public void localQuery(Timer.Sample sample, String store, int entries) {
+        sample.stop(timer("fan-out.local", STORE, store));
+        summary("fan-out.local.entries", STORE, store).record(entries);
+    }
+
+    /**
+     * @param sample started before the request to the instance
+     * @param store queried state-store
+     * @param hostInfo of the called instance
+     * @param entries number of entries returned, negative if the request
+     * failed
+     */
+    public void remoteQuery(Timer.Sample sample, String store, HostInfo hostInfo, int entries) {
+        String host = hostInfo.host() + ":" + hostInfo.port();
+        sample.stop(timer("fan-out.remote", STORE, store, HOST, host, OUTCOME, entries >= 0 ? "success" : "failure"));
+        if (entries >= 0) {
+            summary("fan-out.remote.entries", STORE, store, HOST, host).record(entries);
+        }
+    }
+
+    /**
+     * @param hostInfo of the called instance
+     * @param bytes size of the response body
+     */
+    public void remoteResponseSize(HostInfo hostInfo, long bytes) {
+        DistributionSummary.builder(PREFIX + "remote.response.size")
+                .baseUnit("bytes")
+                .tags(HOST, hostInfo.host() + ":" + hostInfo.port())
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(bytes);
+    }
+
+    /**
+     * @param sample started before the record was sent
+     * @param store state-store the record is materialized in
+     * @param visible whether the record became visible within the timeout
+     */
+    public void writeVisible(Timer.Sample sample, String store, boolean visible) {
+        sample.stop(timer("write.time-to-visible", STORE, store, OUTCOME, visible ? "visible" : "timeout"));
+    }
+
+    /**
+     * Counts one write confirmed by reading the state-store, because the
+     * outcome of its record was unknown, e.g. after a rebalance.
+     *
+     * @param store state-store the record is materialized in
+     */
+    public void writeOutcomeUnknown(String store) {
+        Counter.builder(PREFIX + "write.outcome.unknown").tags(STORE, store).register(registry).increment();
+    }
+
+    /**
+     * @param sample started before the record was passed to the producer
+     * @param channel the record was sent to
+     * @param acknowledged whether Kafka acknowledged the record
+     */
+    public void emitterSend(Timer.Sample sample, String channel, boolean acknowledged) {
+        sample.stop(timer("emitter.send", "channel", channel, OUTCOME, acknowledged ? "ack" : "nack"));
+    }
+
+    /**
+     * Counts one read rejected because the state-store was not queryable.
+     *
+     * @param store the unavailable state-store
+     */
+    public void storeUnavailable(String store) {
+        Counter.builder(PREFIX + "store.unavailable").tags(STORE, store).register(registry).increment();
+    }
+
+    private Timer timer(String name, String... tags) {
+        return Timer.builder(PREFIX + name).tags(tags).publishPercentileHistogram().register(registry);
+    }
+
+    private DistributionSummary summary(String name, String... tags) {
+        return DistributionSummary.builder(PREFIX + name).tags(tags).publishPercentileHistogram().register(registry);
+    }
+}
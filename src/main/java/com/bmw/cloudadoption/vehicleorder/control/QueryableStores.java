@@ -0,0 +1,160 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import com.bmw.cloudadoption.vehicleorder.entity.StoreMetric;
+
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Handles of the local state-stores. The handles are looked up once while
+ * kafka-streams is RUNNING and dropped on every state change. Instead of
+ * waiting for a store, a {@link StoreUnavailableException} is thrown while
+ * kafka-streams is rebalancing or restoring.
+ */
+@ApplicationScoped
+public class QueryableStores {
+
+    @Inject
+    KafkaStreams streams;
+
+    @Inject
+    StreamsStateListener streamsStateListener;
+
+    @Inject
+    QueryMetrics queryMetrics;
+
+    private static final String STATE_METRICS_GROUP = "stream-state-metrics";
+
+    private static final Set<String> ROCKSDB_METRICS = new HashSet<>(Arrays.asList(
+            "block-cache-capacity",
+            "block-cache-usage",
+            "block-cache-pinned-usage",
+            "size-all-mem-tables",
+            "cur-size-all-mem-tables",
+            "estimate-num-keys",
+            "estimate-table-readers-mem",
+            "total-sst-files-size",
+            "num-live-versions",
+            "block-cache-data-hit-ratio",
+            "block-cache-index-hit-ratio",
+            "block-cache-filter-hit-ratio",
+            "bytes-read-compaction-rate",
+            "bytes-written-compaction-rate"));
+
+    // store handles by store name, or store name and partition
+    private final Map<String, Object> stores = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        streamsStateListener.addListener(state -> stores.clear());
+    }
+
+    /**
+     * @return true if kafka-streams is RUNNING, i.e. all local stores are
+     * restored and queryable
+     */
+    public boolean isRunning() {
+        return streamsStateListener.getState() == KafkaStreams.State.RUNNING;
+    }
+
+    /**
+     * @param <K> key type of the state-store
+     * @param <V> value type of the state-store
+     * @param storeName name of the state-store
+     * @return the local state-store over all local partitions
+     * @throws StoreUnavailableException if the store is not queryable right now
+     */
+    public <K, V> ReadOnlyKeyValueStore<K, V> keyValueStore(String storeName) {
+        return get(storeName, StoreQueryParameters.fromNameAndType(storeName, QueryableStoreTypes.<K, V>keyValueStore()));
+    }
+
+    /**
+     * @param <K> key type of the state-store
+     * @param <V> value type of the state-store
+     * @param storeName name of the state-store
+     * @param partition of the state-store
+     * @return the local state-store of one partition
+     * @throws StoreUnavailableException if the store is not queryable right now
+     */
+    public <K, V> ReadOnlyKeyValueStore<K, V> keyValueStore(String storeName, int partition) {
+        return get(storeName + "/" + partition, StoreQueryParameters.fromNameAndType(storeName, QueryableStoreTypes.<K, V>keyValueStore())
+                .withPartition(partition));
+    }
+
+    /**
+     * @param storeName name of the state-store
+     * @return view of the serialized values of the local state-store over all
+     * local partitions
+     * @throws StoreUnavailableException if the store is not queryable right now
+     */
+    public RawValueStore rawValueStore(String storeName) {
+        return get(storeName + "/raw", StoreQueryParameters.fromNameAndType(storeName, RawValueStore.TYPE));
+    }
+
+    /**
+     * @param storeName name of the state-store
+     * @param partition of the state-store
+     * @return view of the serialized values of one partition of the local
+     * state-store
+     * @throws StoreUnavailableException if the store is not queryable right now
+     */
+    public RawValueStore rawValueStore(String storeName, int partition) {
+        return get(storeName + "/raw/" + partition, StoreQueryParameters.fromNameAndType(storeName, RawValueStore.TYPE)
+                .withPartition(partition));
+    }
+
+    /**
+     * @return the RocksDB metrics of all local state-stores relevant for
+     * memory and read amplification, property based metrics are recorded on
+     * level INFO, the statistics based hit ratios on level DEBUG
+     */
+    public List<StoreMetric> rocksDbMetrics() {
+        return streams.metrics().values().stream()
+                .filter(metric -> STATE_METRICS_GROUP.equals(metric.metricName().group())
+                        && ROCKSDB_METRICS.contains(metric.metricName().name()))
+                .map(metric -> new StoreMetric(storeOf(metric.metricName().tags()), metric.metricName().tags().get("task-id"),
+                        metric.metricName().name(), metric.metricValue()))
+                .sorted(Comparator.comparing(StoreMetric::getStore).thenComparing(StoreMetric::getTaskId)
+                        .thenComparing(StoreMetric::getName))
+                .collect(Collectors.toList());
+    }
+
+    private static String storeOf(Map<String, String> tags) {
+        return tags.entrySet().stream()
+                .filter(tag -> tag.getKey().endsWith("-state-id"))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse("");
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S> S get(String handleKey, StoreQueryParameters<S> storeQueryParameters) {
+        if (!isRunning()) {
+            queryMetrics.storeUnavailable(storeQueryParameters.storeName());
+            throw new StoreUnavailableException("Store " + storeQueryParameters.storeName() + " is not queryable in state "
+                    + streamsStateListener.getState());
+        }
+        try {
+            return (S) stores.computeIfAbsent(handleKey, key -> streams.store(storeQueryParameters));
+        } catch (InvalidStateStoreException e) {
+            queryMetrics.storeUnavailable(storeQueryParameters.storeName());
+            throw new StoreUnavailableException("Store " + storeQueryParameters.storeName() + " is not queryable", e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.processor.StateStore;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.QueryableStoreType;
+import org.apache.kafka.streams.state.TimestampedKeyValueStore;
+import org.apache.kafka.streams.state.internals.MeteredKeyValueStore;
+import org.apache.kafka.streams.state.internals.StateStoreProvider;
+import org.apache.kafka.streams.state.internals.WrappedStateStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only view of the serialized values of a local key-value state-store,
+ * values are returned as they are stored without deserializing them. Keys are
+ * passed serialized as well. Tables keep the record timestamp in front of
+ * every value, it is cut off.
+ * <p>
+ * Like the views of {@link org.apache.kafka.streams.state.QueryableStoreTypes},
+ * the stores of the active local tasks are looked up on every call.
+ * <p>
+ * Kafka Streams has no public API for the bytes below the metered store, so
+ * this is the only class relying on its internal store wrapping. The layout
+ * is checked on every access, a store that does not match fails with an
+ * {@link IllegalStateException} instead of a cast error, and the layout is
+ * pinned by RawValueStoreTest for Kafka Streams upgrades.
+ */
+public class RawValueStore {
+
+    /**
+     * Type to look up the view via {@link KafkaStreams#store}.
+     */
+    public static final QueryableStoreType<RawValueStore> TYPE = new QueryableStoreType<>() {
+
+        @Override
+        public boolean accepts(StateStore stateStore) {
+            return stateStore instanceof MeteredKeyValueStore;
+        }
+
+        @Override
+        public RawValueStore create(StateStoreProvider storeProvider, String storeName) {
+            return new RawValueStore(storeProvider, storeName);
+        }
+    };
+
+    private final StateStoreProvider storeProvider;
+    private final String storeName;
+
+    private RawValueStore(StateStoreProvider storeProvider, String storeName) {
+        this.storeProvider = storeProvider;
+        this.storeName = storeName;
+    }
+
+    /**
+     * @param key serialized key
+     * @return serialized value of the key, {@code null} if not found
+     */
+    public byte[] get(Bytes key) {
+        for (StateStore store : stores()) {
+            byte[] value = bytesStore(store).get(key);
+            if (value != null) {
+                return value(store, value);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return serialized values of all keys
+     */
+    public List<byte[]> all() {
+        List<byte[]> values = new ArrayList<>();
+        for (StateStore store : stores()) {
+            try (KeyValueIterator<Bytes, byte[]> iterator = bytesStore(store).all()) {
+                while (iterator.hasNext()) {
+                    values.add(value(store, iterator.next().value));
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Reads the serialized value of a key from a store handed to a processor,
+     * which wraps the metered store once more.
+     *
+     * @param store as returned by the processor context
+     * @param key serialized key
+     * @return serialized value of the key, {@code null} if not found
+     */
+    static byte[] get(StateStore store, Bytes key) {
+        StateStore metered = store;
+        while (!(metered instanceof MeteredKeyValueStore) && metered instanceof WrappedStateStore) {
+            metered = ((WrappedStateStore<?, ?, ?>) metered).wrapped();
+        }
+        byte[] value = bytesStore(metered).get(key);
+        return value != null ? value(metered, value) : null;
+    }
+
+    // stores accepted by TYPE are returned as they are, i.e. the metered stores of the tasks, not as views
+    @SuppressWarnings("unchecked")
+    private List<StateStore> stores() {
+        return (List<StateStore>) (List<?>) storeProvider.stores(storeName, TYPE);
+    }
+
+    /**
+     * @param metered store of a task, as handed out by kafka-streams
+     * @return the bytes store wrapped by the metered store
+     * @throws IllegalStateException if the store is not wrapped as expected
+     */
+    @SuppressWarnings("unchecked")
+    private static KeyValueStore<Bytes, byte[]> bytesStore(StateStore metered) {
+        StateStore inner = metered instanceof MeteredKeyValueStore ? ((WrappedStateStore<?, ?, ?>) metered).wrapped() : null;
+        if (!(inner instanceof KeyValueStore)) {
+            throw new IllegalStateException("Store " + metered.name() + " does not wrap a key-value bytes store"
+                    + " in a metered store, the store wrapping of kafka-streams has changed");
+        }
+        return (KeyValueStore<Bytes, byte[]>) inner;
+    }
+
+    private static byte[] value(StateStore store, byte[] value) {
+        return store instanceof TimestampedKeyValueStore ? Arrays.copyOfRange(value, Long.BYTES, value.length) : value;
+    }
+}
@@ -0,0 +1,30 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import org.apache.kafka.streams.state.HostInfo;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+
+/**
+ * Records the size of the responses of another instance, if the response has
+ * a Content-Length.
+ */
+public class ResponseSizeFilter implements ClientResponseFilter {
+
+    private final QueryMetrics queryMetrics;
+    private final HostInfo hostInfo;
+
+    public ResponseSizeFilter(QueryMetrics queryMetrics, HostInfo hostInfo) {
+        this.queryMetrics = queryMetrics;
+        this.hostInfo = hostInfo;
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+        int length = responseContext.getLength();
+        if (length >= 0) {
+            queryMetrics.remoteResponseSize(hostInfo, length);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import org.apache.kafka.streams.state.HostInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Thread-safe routing table from the other instances to their rest-clients.
+ * Clients are created once per instance and closed when the instance left
+ * the group.
+ *
+ * @param <R> type of the rest-client
+ */
+public class RestClientRegistry<R> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RestClientRegistry.class);
+
+    private final Map<HostInfo, R> clients = new ConcurrentHashMap<>();
+
+    private final Function<HostInfo, R> createClient;
+
+    /**
+     * @param createClient creates the rest-client for an instance
+     */
+    public RestClientRegistry(Function<HostInfo, R> createClient) {
+        this.createClient = createClient;
+    }
+
+    /**
+     * @param hostInfo of the instance
+     * @return the rest-client for the instance
+     */
+    public R get(HostInfo hostInfo) {
+        return clients.computeIfAbsent(hostInfo, createClient);
+    }
+
+    /**
+     * Creates the clients for new instances and closes the clients of
+     * instances that are gone.
+     *
+     * @param hostInfos of all other instances
+     */
+    public void retain(Set<HostInfo> hostInfos) {
+        for (HostInfo hostInfo : hostInfos) {
+            get(hostInfo);
+        }
+        clients.keySet().removeIf(hostInfo -> {
+            if (hostInfos.contains(hostInfo)) {
+                return false;
+            }
+            close(hostInfo, clients.get(hostInfo));
+            return true;
+        });
+    }
+
+    private static void close(HostInfo hostInfo, Object client) {
+        LOGGER.info("Closing rest-client of departed instance {}", hostInfo);
+        if (client instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) client).close();
+            } catch (Exception e) {
+                LOGGER.warn("Cannot close rest-client of {}", hostInfo, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Processor maintaining a secondary index for a materialized table. It has to
+ * be placed behind the table, so it runs on the same partitions as the table
+ * and the index can be queried locally next to the indexed values.
+ * <p>
+ * Every value is indexed under a set of terms. The index store contains one
+ * entry per term and primary key, its key is the term followed by
+ * {@link #SEPARATOR} and the primary key, so all primary keys of a term can be
+ * found via prefix scan and terms can be scanned in ranges. The terms store
+ * remembers the terms each primary key has been indexed with, so updates and
+ * tombstones remove stale index entries without knowing the old value.
+ * <p>
+ * Every added or removed index entry is forwarded downstream, keyed by its
+ * index key, with the indexed value or {@code null} if it has been removed.
+ *
+ * @param <V> value type of the indexed table
+ */
+public class SecondaryIndexProcessor<V> implements Processor<String, V, String, V> {
+
+    /**
+     * Separates the term from the primary key inside an index key. Sorts below
+     * every other character, so a term sorts before all longer terms starting
+     * with it.
+     */
+    public static final char SEPARATOR = '\u0000';
+
+    private final String indexStoreName;
+    private final String termsStoreName;
+    private final Function<V, Collection<String>> terms;
+
+    private ProcessorContext<String, V> context;
+    private KeyValueStore<String, String> indexStore;
+    private KeyValueStore<String, List<String>> termsStore;
+
+    /**
+     * @param indexStoreName name of the index store, from index key to primary
+     * key. If {@code null}, index entries are only forwarded
+     * @param termsStoreName name of the store from primary key to its terms
+     * @param terms returns the terms a value is indexed under, {@code null}
+     * terms are ignored
+     */
+    public SecondaryIndexProcessor(String indexStoreName, String termsStoreName, Function<V, Collection<String>> terms) {
+        this.indexStoreName = indexStoreName;
+        this.termsStoreName = termsStoreName;
+        this.terms = terms;
+    }
+
+    @Override
+    public void init(ProcessorContext<String, V> context) {
+        this.context = context;
+        this.indexStore = indexStoreName != null ? context.getStateStore(indexStoreName) : null;
+        this.termsStore = context.getStateStore(termsStoreName);
+    }
+
+    @Override
+    public void process(Record<String, V> record) {
+        String primaryKey = record.key();
+        Set<String> newTerms = new LinkedHashSet<>();
+        if (record.value() != null) {
+            terms.apply(record.value()).stream().filter(Objects::nonNull).forEach(newTerms::add);
+        }
+        List<String> oldTerms = termsStore.get(primaryKey);
+
+        if (oldTerms != null) {
+            for (String term : oldTerms) {
+                if (!newTerms.contains(term)) {
+                    String indexKey = indexKey(term, primaryKey);
+                    if (indexStore != null) {
+                        indexStore.delete(indexKey);
+                    }
+                    context.forward(record.withKey(indexKey).<V>withValue(null));
+                }
+            }
+        }
+        for (String term : newTerms) {
+            String indexKey = indexKey(term, primaryKey);
+            if (indexStore != null) {
+                indexStore.put(indexKey, primaryKey);
+            }
+            context.forward(record.withKey(indexKey));
+        }
+
+        if (newTerms.isEmpty()) {
+            termsStore.delete(primaryKey);
+        } else {
+            termsStore.put(primaryKey, new ArrayList<>(newTerms));
+        }
+    }
+
+    /**
+     * @param term the value is indexed under
+     * @param primaryKey of the value
+     * @return key of the index entry
+     */
+    public static String indexKey(String term, String primaryKey) {
+        return term + SEPARATOR + primaryKey;
+    }
+
+    /**
+     * @param term to search for
+     * @return prefix shared by all index entries of the term
+     */
+    public static String prefix(String term) {
+        return term + SEPARATOR;
+    }
+
+    /**
+     * @param indexKey key of an index entry
+     * @return term part of the index key
+     */
+    public static String term(String indexKey) {
+        return indexKey.substring(0, indexKey.indexOf(SEPARATOR));
+    }
+}
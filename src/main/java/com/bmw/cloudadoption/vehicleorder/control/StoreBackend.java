@@ -0,0 +1,44 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import org.apache.kafka.streams.state.KeyValueBytesStoreSupplier;
+import org.apache.kafka.streams.state.Stores;
+
+/**
+ * Backends the state-stores of the topology can be kept in. Every backend is
+ * backed by a changelog, in-memory stores are restored from it on start.
+ */
+public enum StoreBackend {
+
+    /**
+     * RocksDB on local disk, survives restarts without a full restore.
+     */
+    PERSISTENT,
+    /**
+     * Heap memory, restored completely on every start.
+     */
+    IN_MEMORY,
+    /**
+     * Heap memory bounded to the least recently used entries. Evicted entries
+     * are deleted from the changelog as well, so only the primary store of an
+     * entity may be bounded, derived stores like indexes and counters are kept
+     * in memory completely.
+     */
+    LRU;
+
+    /**
+     * @param name of the state-store
+     * @param lruMaxEntries maximum number of entries of an LRU store
+     * @return supplier for a primary store of an entity
+     */
+    public KeyValueBytesStoreSupplier primaryStore(String name, int lruMaxEntries) {
+        return this == LRU ? Stores.lruMap(name, lruMaxEntries) : derivedStore(name);
+    }
+
+    /**
+     * @param name of the state-store
+     * @return supplier for a store derived from a primary store, e.g. an index
+     */
+    public KeyValueBytesStoreSupplier derivedStore(String name) {
+        return this == PERSISTENT ? Stores.persistentKeyValueStore(name) : Stores.inMemoryKeyValueStore(name);
+    }
+}
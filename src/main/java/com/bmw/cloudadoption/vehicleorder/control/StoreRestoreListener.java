@@ -0,0 +1,65 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.processor.StateRestoreListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Restore listener of the kafka-streams instance, registered by Quarkus.
+ * Tracks the changelog partitions the active tasks of this instance are
+ * restoring from, standby tasks do not report here.
+ */
+@ApplicationScoped
+public class StoreRestoreListener implements StateRestoreListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StoreRestoreListener.class);
+
+    @Inject
+    StreamsStateListener streamsStateListener;
+
+    private final Set<TopicPartition> restoring = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    void init() {
+        // a task migrated away while restoring never reports its end, once running nothing is restoring anymore
+        streamsStateListener.addListener(state -> {
+            if (state == KafkaStreams.State.RUNNING) {
+                restoring.clear();
+            }
+        });
+    }
+
+    @Override
+    public void onRestoreStart(TopicPartition topicPartition, String storeName, long startingOffset, long endingOffset) {
+        LOGGER.info("Restoring {} from {}, offsets {} to {}", storeName, topicPartition, startingOffset, endingOffset);
+        restoring.add(topicPartition);
+    }
+
+    @Override
+    public void onBatchRestored(TopicPartition topicPartition, String storeName, long batchEndOffset, long numRestored) {
+        // progress is not tracked
+    }
+
+    @Override
+    public void onRestoreEnd(TopicPartition topicPartition, String storeName, long totalRestored) {
+        LOGGER.info("Restored {} records of {} from {}", totalRestored, storeName, topicPartition);
+        restoring.remove(topicPartition);
+    }
+
+    /**
+     * @return number of changelog partitions the active tasks of this
+     * instance are restoring from right now
+     */
+    public int getRestoringPartitions() {
+        return restoring.size();
+    }
+}
@@ -0,0 +1,18 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+/**
+ * Thrown if a state-store cannot be queried right now, e.g. during a
+ * rebalance or while it is restored. The request can be retried later.
+ */
+public class StoreUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public StoreUnavailableException(String message) {
+        super(message);
+    }
+
+    public StoreUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,89 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Serialized values as they are kept in a state-store, written to a response
+ * without deserializing them. Every value is either JSON or a binary record,
+ * depending on the store value format.
+ */
+public class StoredValues {
+
+    private final List<byte[]> values;
+    private final boolean single;
+
+    private StoredValues(List<byte[]> values, boolean single) {
+        this.values = values;
+        this.single = single;
+    }
+
+    /**
+     * @param value serialized value, {@code null} if not found
+     * @return a single value, written as entity instead of a list
+     */
+    public static StoredValues single(byte[] value) {
+        return new StoredValues(value != null ? Collections.singletonList(value) : Collections.emptyList(), true);
+    }
+
+    /**
+     * @param values serialized values
+     * @return a list of values
+     */
+    public static StoredValues list(List<byte[]> values) {
+        return new StoredValues(values, false);
+    }
+
+    public List<byte[]> getValues() {
+        return values;
+    }
+
+    public boolean isSingle() {
+        return single;
+    }
+
+    /**
+     * @return version of the values, changes whenever one of them changes
+     */
+    public String version() {
+        MessageDigest digest = digest();
+        values.forEach(digest::update);
+        return encode(digest);
+    }
+
+    /**
+     * @param value serialized value or version vector
+     * @return version of the value, a hash of its bytes
+     */
+    public static String version(byte[] value) {
+        MessageDigest digest = digest();
+        digest.update(value);
+        return encode(digest);
+    }
+
+    /**
+     * @param value version vector
+     * @return version of the vector, a hash of its characters
+     */
+    public static String version(String value) {
+        return version(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static String encode(MessageDigest digest) {
+        // 128 bits are plenty to tell versions of one entity apart
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest.digest(), 16));
+    }
+}
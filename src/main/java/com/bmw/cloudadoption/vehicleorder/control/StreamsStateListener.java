@@ -0,0 +1,57 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import org.apache.kafka.streams.KafkaStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * State listener of the kafka-streams instance, registered by Quarkus. Other
+ * components subscribe as listeners, e.g. to rebuild their routing once a
+ * rebalance is finished.
+ */
+@ApplicationScoped
+public class StreamsStateListener implements KafkaStreams.StateListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamsStateListener.class);
+
+    private final List<Consumer<KafkaStreams.State>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile KafkaStreams.State state = KafkaStreams.State.CREATED;
+
+    @Override
+    public void onChange(KafkaStreams.State newState, KafkaStreams.State oldState) {
+        LOGGER.info("Kafka-streams state changed from {} to {}", oldState, newState);
+        this.state = newState;
+        for (Consumer<KafkaStreams.State> listener : listeners) {
+            try {
+                listener.accept(newState);
+            } catch (RuntimeException e) {
+                LOGGER.warn("State listener failed on {}", newState, e);
+            }
+        }
+    }
+
+    /**
+     * @return the current state of the kafka-streams instance
+     */
+    public KafkaStreams.State getState() {
+        return state;
+    }
+
+    /**
+     * @param listener called with the new state on every state change
+     */
+    public void addListener(Consumer<KafkaStreams.State> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<KafkaStreams.State> listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,231 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import com.bmw.cloudadoption.vehicleorder.TopologyProducer;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrderChange;
+
+import io.quarkus.runtime.Startup;
+import org.apache.kafka.streams.KafkaStreams;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Feed of the changes applied to the local vehicle-order-store, fed by the
+ * topology via the {@link AppliedRecordRegistry}. The last changes are kept in
+ * a bounded buffer, so subscribers can resume from a {@link ChangeFeedPosition}
+ * after a reconnect. If the buffer no longer reaches back to the position,
+ * subscribers are told to reload all orders.
+ * <p>
+ * The partitions of this instance change on a rebalance, so the buffer is
+ * dropped and all subscriptions are closed. Clients reconnect and resume.
+ * <p>
+ * The offsets of the last changes are also the version vector of the local
+ * partitions, see {@link #version(Collection)}.
+ */
+// created on startup, so changes are buffered before the first subscription
+@Startup
+@ApplicationScoped
+public class VehicleOrderChangeFeed {
+
+    @Inject
+    AppliedRecordRegistry appliedRecords;
+
+    @Inject
+    StreamsStateListener streamsStateListener;
+
+    // number of changes kept for resuming subscribers
+    @ConfigProperty(name = "vehicleorder.change-feed.buffer-size", defaultValue = "10000")
+    int bufferSize;
+
+    // threads sending the events to the clients, shared by all subscribers
+    @ConfigProperty(name = "vehicleorder.change-feed.send-threads", defaultValue = "4")
+    int sendThreads;
+
+    // last changes, oldest first, also the lock of all state of the feed
+    private final Deque<VehicleOrderChange> buffer = new ArrayDeque<>();
+
+    // per partition, the first offset contained in the buffer
+    private final Map<Integer, Long> floors = new HashMap<>();
+
+    // per partition, the offset of the last change since the last rebalance
+    private ChangeFeedPosition latest = new ChangeFeedPosition();
+
+    // identifies this process and its rebalances in versions of partitions without changes
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+    private int generation;
+
+    // copied on write, a listener may cancel its subscription while being notified
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final Consumer<AppliedRecord<?, ?>> appliedListener = this::onApplied;
+
+    private final Consumer<KafkaStreams.State> stateListener = this::onStateChange;
+
+    // runs tasks of listeners outside of the stream threads and the locks held while notifying them
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(sendThreads, runnable -> {
+            Thread thread = new Thread(runnable, "vehicle-order-change-feed-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        appliedRecords.addListener(appliedListener);
+        streamsStateListener.addListener(stateListener);
+    }
+
+    @PreDestroy
+    void destroy() {
+        appliedRecords.removeListener(appliedListener);
+        streamsStateListener.removeListener(stateListener);
+        closeAll();
+        executor.shutdown();
+    }
+
+    /**
+     * Runs a task of a listener outside of the stream threads and the locks
+     * held while notifying it, e.g. sending events to its client or cancelling
+     * its subscription because its client is gone. Listeners are notified
+     * while the feed holds its lock, and cancelling takes the same lock.
+     *
+     * @param task to run on the threads of the feed
+     */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Subscribes to the changes applied by this instance. Buffered changes
+     * after the resume position are replayed first, partitions missing in the
+     * position are replayed completely. A change may therefore be sent twice,
+     * applying it again has no effect.
+     *
+     * @param since resume position, {@code null} for only new changes
+     * @param filter of the changes
+     * @param listener called for the changes
+     * @return cancels the subscription
+     */
+    public Runnable subscribe(ChangeFeedPosition since, ChangeFeedFilter filter, ChangeFeedListener listener) {
+        Subscription subscription = new Subscription(filter, listener);
+        synchronized (buffer) {
+            if (since == null) {
+                ChangeFeedPosition position = new ChangeFeedPosition();
+                position.advance(latest);
+                listener.onPosition(position);
+            } else if (isBuffered(since)) {
+                buffer.stream()
+                        .filter(change -> since.offset(change.getPartition()) == null || change.getOffset() > since.offset(change.getPartition()))
+                        .filter(filter::test)
+                        .forEach(listener::onChange);
+            } else {
+                listener.onReset();
+            }
+            subscriptions.add(subscription);
+        }
+        return () -> {
+            synchronized (buffer) {
+                subscriptions.remove(subscription);
+            }
+        };
+    }
+
+    /**
+     * Version vector entries of the given partitions, {@code partition:offset}
+     * of the last change applied. A partition without changes since the last
+     * rebalance gets a marker unique to this process and rebalance instead, so
+     * its version changes whenever it may have changed elsewhere.
+     *
+     * @param partitions of the vehicle-order-store active on this instance
+     * @return one entry per partition
+     */
+    public List<String> version(Collection<Integer> partitions) {
+        synchronized (buffer) {
+            return partitions.stream()
+                    .map(partition -> partition + ":" + (latest.offset(partition) != null
+                            ? latest.offset(partition).toString()
+                            : "~" + epoch + "." + generation))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private boolean isBuffered(ChangeFeedPosition since) {
+        // offsets are not contiguous, so a change right before the floor may be reported as missing
+        return floors.entrySet().stream()
+                .allMatch(floor -> since.offset(floor.getKey()) == null || since.offset(floor.getKey()) >= floor.getValue() - 1);
+    }
+
+    private void onApplied(AppliedRecord<?, ?> record) {
+        if (!TopologyProducer.VEHICLE_ORDER_STORE_NAME.equals(record.getStoreName())) {
+            return;
+        }
+        VehicleOrderChange change = new VehicleOrderChange((String) record.getKey(), (VehicleOrder) record.getValue(),
+                record.getPartition(), record.getOffset(), record.getTimestamp());
+        synchronized (buffer) {
+            floors.putIfAbsent(change.getPartition(), change.getOffset());
+            latest.advance(change.getPartition(), change.getOffset());
+            buffer.addLast(change);
+            if (buffer.size() > bufferSize) {
+                VehicleOrderChange evicted = buffer.removeFirst();
+                floors.put(evicted.getPartition(), evicted.getOffset() + 1);
+            }
+            for (Subscription subscription : subscriptions) {
+                if (subscription.filter.test(change)) {
+                    subscription.listener.onChange(change);
+                }
+            }
+        }
+    }
+
+    private void onStateChange(KafkaStreams.State state) {
+        if (state == KafkaStreams.State.REBALANCING) {
+            synchronized (buffer) {
+                latest = new ChangeFeedPosition();
+                generation++;
+            }
+            closeAll();
+        }
+    }
+
+    private void closeAll() {
+        List<Subscription> closed;
+        synchronized (buffer) {
+            buffer.clear();
+            floors.clear();
+            closed = new ArrayList<>(subscriptions);
+            subscriptions.clear();
+        }
+        closed.forEach(subscription -> subscription.listener.onClose());
+    }
+
+    private static final class Subscription {
+
+        private final ChangeFeedFilter filter;
+        private final ChangeFeedListener listener;
+
+        private Subscription(ChangeFeedFilter filter, ChangeFeedListener listener) {
+            this.filter = filter;
+            this.listener = listener;
+        }
+    }
+}
@@ -1,18 +1,48 @@
 package com.bmw.cloudadoption.vehicleorder.control;
 
 import com.bmw.cloudadoption.vehicleorder.TopologyProducer;
+import com.bmw.cloudadoption.vehicleorder.boundary.PlantService;
 import com.bmw.cloudadoption.vehicleorder.boundary.VehicleOrderService;
+import com.bmw.cloudadoption.vehicleorder.control.serdes.StoreValueFormat;
+import com.bmw.cloudadoption.vehicleorder.entity.OrderCount;
+import com.bmw.cloudadoption.vehicleorder.entity.OrderPerPlant;
 import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
 
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.KeyQueryMetadata;
+import org.apache.kafka.streams.StreamsMetadata;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.net.URL;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 
 /**
  * Discrete implementation of {@link InteractiveQueriesBase}. Handles
@@ -21,22 +51,377 @@ import javax.enterprise.context.ApplicationScoped;
 @ApplicationScoped
 public class VehicleOrderInteractiveQueries extends InteractiveQueriesBase<String, VehicleOrder, VehicleOrderService> {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(VehicleOrderInteractiveQueries.class);
+
     // function returning the concrete rest-client
-    private static final Function<URL, VehicleOrderService> GET_REST_CLIENT
-            = url -> RestClientBuilder.newBuilder().baseUrl(url).build(VehicleOrderService.class);
+    private static final Function<RestClientBuilder, VehicleOrderService> GET_REST_CLIENT
+            = builder -> builder.build(VehicleOrderService.class);
 
     // function for fetching one message by the key
     private static final BiFunction<VehicleOrderService, String, VehicleOrder> GET_ENTRY = VehicleOrderService::getEntry;
 
+    // function for fetching one message by the key from a possibly stale local state-store
+    private static final StaleEntryFunction<VehicleOrderService, String, VehicleOrder> GET_STALE_ENTRY
+            = (restClient, key, maxLag) -> restClient.getEntry(key, maxLag, true);
+
+    // function for fetching many messages by their keys from the local state-store
+    private static final BiFunction<VehicleOrderService, List<String>, CompletionStage<List<VehicleOrder>>> GET_ENTRIES
+            = (restClient, keys) -> restClient.getEntries(keys, true);
+
     // function for fetching all messages from the local state-store
     private static final Function<VehicleOrderService, CompletionStage<List<VehicleOrder>>> GET_ALL
             = restClient -> restClient.getAll(true);
 
+    // function for fetching one key-ordered page of messages from the local state-store
+    private static final PageFunction<VehicleOrderService, String, VehicleOrder> GET_PAGE
+            = (restClient, after, limit) -> restClient.getPage(after, limit, true);
+
+    // function for waiting for the outcomes of written messages in the local topology
+    private static final OutcomesFunction<VehicleOrderService> GET_OUTCOMES
+            = (restClient, positions, timeout) -> restClient.getOutcomes(positions, timeout);
+
+    // function for streaming all messages from the local state-store
+    private static final Function<VehicleOrderService, InputStream> STREAM_ALL
+            = restClient -> restClient.streamAll(true);
+
+    // partitioner of the plant view, all orders of a plant are in the partition of the plantId
+    private static final IndexTermPartitioner<VehicleOrder> PLANT_PARTITIONER = new IndexTermPartitioner<>();
+
+    // rest-clients for the plant API of other instances
+    private final RestClientRegistry<PlantService> plantClients = createRestClientRegistry(builder -> builder.build(PlantService.class));
+
+    // rest-clients for the change feeds of other instances, feeds stay open without traffic so there is no read timeout
+    private final RestClientRegistry<VehicleOrderService> changeFeedClients = createRestClientRegistry(
+            builder -> builder.readTimeout(0, TimeUnit.MILLISECONDS).build(VehicleOrderService.class));
+
+    @Inject
+    VehicleOrderNearCache nearCache;
+
+    @Inject
+    VehicleOrderChangeFeed changeFeed;
+
+    // format of the orders inside the state-store, versions are hashes of the stored bytes
+    @ConfigProperty(name = "vehicleorder.store.value-format", defaultValue = "json")
+    StoreValueFormat storeValueFormat;
+
+    private Serializer<VehicleOrder> storeSerializer;
+
+    @PostConstruct
+    void initStoreSerializer() {
+        storeSerializer = storeValueFormat.vehicleOrderSerde().serializer();
+    }
+
     /**
      * Instantiates our class for our concrete entity type.
      */
     public VehicleOrderInteractiveQueries() {
-        super(TopologyProducer.VEHICLE_ORDER_STORE_NAME, String.class, GET_REST_CLIENT, GET_ENTRY, GET_ALL);
+        super(TopologyProducer.VEHICLE_ORDER_STORE_NAME, String.class, GET_REST_CLIENT, GET_ENTRY, GET_STALE_ENTRY, GET_ENTRIES, GET_ALL, GET_PAGE, GET_OUTCOMES, STREAM_ALL,
+                VehicleOrder::getKey);
+    }
+
+    @Override
+    protected NearCache<String, VehicleOrder> getNearCache() {
+        return nearCache.getCache();
+    }
+
+    /**
+     * Version of an order read from another instance, the same version the
+     * instance hosting it derives from the stored bytes, see
+     * {@link StoredValues#version()}.
+     *
+     * @param vehicleOrder read from another instance
+     * @return version of the order
+     */
+    public String version(VehicleOrder vehicleOrder) {
+        return StoredValues.version(storeSerializer.serialize(TopologyProducer.VEHICLE_ORDER_STORE_NAME, vehicleOrder));
+    }
+
+    /**
+     * Waits until a conditional write of an order is present in the state
+     * store, see {@link #awaitConditionalEntryInStateStore(Object, Object, CompletionStage, Predicate)}.
+     * If the outcome of the record is unknown, a value read from the
+     * state-store conflicts if it is neither the order nor has the expected
+     * version.
+     *
+     * @param vehicleOrder that has been written
+     * @param condition version the order has been written with, or
+     * {@link ConditionalUpsertProcessor#ANY}
+     * @param written completes with the metadata of the record
+     * @return completes like {@link #awaitConditionalEntryInStateStore(Object, Object, CompletionStage, Predicate)}
+     */
+    public CompletionStage<Boolean> awaitConditionalEntryInStateStore(VehicleOrder vehicleOrder, String condition,
+            CompletionStage<RecordMetadata> written) {
+        return awaitConditionalEntryInStateStore(vehicleOrder.getKey(), vehicleOrder, written,
+                value -> !vehicleOrder.equals(value) && !matches(value, condition));
+    }
+
+    private boolean matches(VehicleOrder value, String condition) {
+        return value != null && (ConditionalUpsertProcessor.ANY.equals(condition) || condition.equals(version(value)));
+    }
+
+    /**
+     * Version vector of all orders, the offset of the last change applied per
+     * partition, see {@link VehicleOrderChangeFeed#version}. Every instance
+     * contributes the entries of its partitions, so an unchanged collection is
+     * detected with one small request per instance.
+     *
+     * @param localOnly if true, return only the entries of this instance
+     * @return entries of all partitions ordered by partition, separated by
+     * commas
+     */
+    public String getVersionVector(boolean localOnly) {
+        List<String> entries = scatterGather(() -> changeFeed.version(localStorePartitions()),
+                restClient -> restClient.getVersion(true).thenApply(VehicleOrderInteractiveQueries::versionEntries), localOnly);
+        return entries.stream()
+                .sorted(Comparator.comparingInt((String entry) -> Integer.parseInt(entry.substring(0, entry.indexOf(':')))))
+                .collect(Collectors.joining(","));
+    }
+
+    private static List<String> versionEntries(String versionVector) {
+        return Arrays.stream(versionVector.split(","))
+                .filter(entry -> !entry.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Subscribes to the changes of all orders. The changes of the local
+     * partitions come from the change feed of this instance, the changes of
+     * the other partitions are relayed from the change feeds of the other
+     * instances. If one of the feeds ends, the listener is closed and the
+     * client resumes with its position.
+     *
+     * @param since resume position, {@code null} for only new changes
+     * @param filter of the changes, applied by every instance
+     * @param localOnly if true, only subscribe to the changes of this instance
+     * @param listener called for the changes of all feeds
+     * @return cancels the subscription of all feeds
+     */
+    public Runnable subscribeChanges(ChangeFeedPosition since, ChangeFeedFilter filter, boolean localOnly, ChangeFeedListener listener) {
+        List<Runnable> cancellations = new ArrayList<>();
+        if (!localOnly) {
+            String position = since != null ? since.toString() : null;
+            for (StreamsMetadata streamsMetadata : streams.streamsMetadataForStore(TopologyProducer.VEHICLE_ORDER_STORE_NAME)) {
+                if (isRemoteHost(streamsMetadata.hostInfo())) {
+                    ChangeFeedRelay relay = new ChangeFeedRelay(listener);
+                    cancellations.add(relay::cancel);
+                    changeFeedClients.get(streamsMetadata.hostInfo())
+                            .streamChanges(true, filter.getPlantId(), filter.getVehicleId(), position)
+                            .subscribe(relay);
+                }
+            }
+        }
+        cancellations.add(changeFeed.subscribe(since, filter, listener));
+        return () -> cancellations.forEach(Runnable::run);
+    }
+
+    /**
+     * Get all orders as they are stored, without deserializing them. Remote
+     * instances answer with their stored records, which are collected without
+     * deserializing them either.
+     *
+     * @param localOnly if true, return only orders of the local state-store
+     * @return All stored orders
+     */
+    public StoredValues getAllStored(boolean localOnly) {
+        return StoredValues.list(scatterGather(this::getLocalStoredAll,
+                restClient -> restClient.getAllStored(true).thenApply(StoredValues::getValues), localOnly));
+    }
+
+    /**
+     * Get all orders of a vehicle model via the vehicleId index. Every instance
+     * prefix-scans its local part of the index and only reads the matching
+     * orders.
+     *
+     * @param vehicleId of the orders
+     * @param localOnly if true, return only orders of the local state-store
+     * @return All orders of the vehicle model
+     */
+    public List<VehicleOrder> getByVehicleId(String vehicleId, boolean localOnly) {
+        return scatterGather(() -> getLocalByIndex(TopologyProducer.VEHICLE_ID_INDEX_STORE_NAME, vehicleId),
+                restClient -> restClient.getByVehicleId(vehicleId, true), localOnly);
+    }
+
+    /**
+     * Get all orders with a planned start date in the given range via the start
+     * date index. Every instance range-scans its local part of the index.
+     *
+     * @param from first planned start date, open if {@code null}
+     * @param to last planned start date, open if {@code null}
+     * @param localOnly if true, return only orders of the local state-store
+     * @return All orders in the range, sorted by their first planned start date
+     * in the range
+     */
+    public List<VehicleOrder> getByPlannedStartDate(LocalDate from, LocalDate to, boolean localOnly) {
+        return getByDateRange(TopologyProducer.START_DATE_INDEX_STORE_NAME, OrderPerPlant::getPlannedOrderStartDate, from, to,
+                restClient -> restClient.getByPlannedStartDate(Objects.toString(from, null), Objects.toString(to, null), true),
+                localOnly);
+    }
+
+    /**
+     * Get all orders with a planned end date in the given range via the end
+     * date index. Every instance range-scans its local part of the index.
+     *
+     * @param from first planned end date, open if {@code null}
+     * @param to last planned end date, open if {@code null}
+     * @param localOnly if true, return only orders of the local state-store
+     * @return All orders in the range, sorted by their first planned end date in
+     * the range
+     */
+    public List<VehicleOrder> getByPlannedEndDate(LocalDate from, LocalDate to, boolean localOnly) {
+        return getByDateRange(TopologyProducer.END_DATE_INDEX_STORE_NAME, OrderPerPlant::getPlannedOrderEndDate, from, to,
+                restClient -> restClient.getByPlannedEndDate(Objects.toString(from, null), Objects.toString(to, null), true),
+                localOnly);
+    }
+
+    /**
+     * Get all orders matching all given filters. The first given filter is
+     * answered by its index, the other filters are applied to its results.
+     *
+     * @param vehicleId vehicle model of the orders, ignored if {@code null}
+     * @param startFrom first planned start date, open if {@code null}
+     * @param startTo last planned start date, open if {@code null}
+     * @param endFrom first planned end date, open if {@code null}
+     * @param endTo last planned end date, open if {@code null}
+     * @param localOnly if true, return only orders of the local state-store
+     * @return All matching orders, sorted like the results of the index used
+     */
+    public List<VehicleOrder> getFiltered(String vehicleId, LocalDate startFrom, LocalDate startTo,
+            LocalDate endFrom, LocalDate endTo, boolean localOnly) {
+        boolean byStartDate = startFrom != null || startTo != null;
+        boolean byEndDate = endFrom != null || endTo != null;
+        List<VehicleOrder> values;
+        if (vehicleId != null) {
+            values = getByVehicleId(vehicleId, localOnly);
+        } else if (byStartDate) {
+            values = getByPlannedStartDate(startFrom, startTo, localOnly);
+        } else {
+            values = getByPlannedEndDate(endFrom, endTo, localOnly);
+        }
+        return values.stream()
+                .filter(value -> vehicleId == null || vehicleId.equals(value.getVehicleId()))
+                .filter(value -> !byStartDate || hasDateInRange(value, OrderPerPlant::getPlannedOrderStartDate, startFrom, startTo))
+                .filter(value -> !byEndDate || hasDateInRange(value, OrderPerPlant::getPlannedOrderEndDate, endFrom, endTo))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get all orders of a plant via the plant view. The view is partitioned by
+     * plantId, so all orders of a plant are read from the one instance hosting
+     * the plant.
+     *
+     * @param plantId of the orders
+     * @param localOnly if true, return only orders of the local plant view
+     * @return All orders with an OrderPerPlant or an assembly line in the plant
+     */
+    public CompletionStage<List<VehicleOrder>> getByPlant(String plantId, boolean localOnly) {
+        String prefix = SecondaryIndexProcessor.prefix(plantId);
+        if (!localOnly) {
+            KeyQueryMetadata metadata = streams.queryMetadataForKey(TopologyProducer.PLANT_VIEW_STORE_NAME, prefix, PLANT_PARTITIONER);
+            if (metadata == KeyQueryMetadata.NOT_AVAILABLE) {
+                LOGGER.error("Neither this or other instances has access to requested plant {}", plantId);
+                return CompletableFuture.completedFuture(Collections.emptyList());
+            }
+            if (isRemoteHost(metadata.activeHost())) {
+                return getPlantClient(metadata.activeHost()).getOrders(plantId, true);
+            }
+        }
+
+        List<VehicleOrder> values = new ArrayList<>();
+        ReadOnlyKeyValueStore<String, VehicleOrder> plantView = getQueryableStore(TopologyProducer.PLANT_VIEW_STORE_NAME);
+        try (KeyValueIterator<String, VehicleOrder> iterator = plantView.prefixScan(prefix, new StringSerializer())) {
+            iterator.forEachRemaining(entry -> values.add(entry.value));
+        }
+        return CompletableFuture.completedFuture(values);
+    }
+
+    /**
+     * Get the continuously maintained order counts of a dimension. Every group
+     * is counted by exactly one instance, so the cost depends on the number of
+     * groups, not on the number of orders.
+     *
+     * @param dimension the orders are counted by
+     * @param localOnly if true, return only the groups counted by this instance
+     * @return Counts of all groups, sorted by group
+     */
+    public List<OrderCount> getOrderCounts(OrderCountDimension dimension, boolean localOnly) {
+        List<OrderCount> counts = scatterGather(() -> {
+            List<OrderCount> values = new ArrayList<>();
+            ReadOnlyKeyValueStore<String, Long> store = getQueryableStore(dimension.getStoreName());
+            try (KeyValueIterator<String, Long> iterator = store.all()) {
+                iterator.forEachRemaining(entry -> values.add(new OrderCount(entry.key, entry.value)));
+            }
+            return values;
+        }, restClient -> restClient.getOrderCounts(dimension, true), localOnly);
+        counts.sort(Comparator.comparing(OrderCount::getGroup));
+        return counts;
+    }
+
+    private PlantService getPlantClient(HostInfo hostInfo) {
+        return plantClients.get(hostInfo);
+    }
+
+    private List<VehicleOrder> getByDateRange(String indexStoreName, Function<OrderPerPlant, LocalDate> plannedDate,
+            LocalDate from, LocalDate to, Function<VehicleOrderService, CompletionStage<List<VehicleOrder>>> remoteQuery,
+            boolean localOnly) {
+        // every instance returns its orders sorted, local partitions are not sorted among each other though
+        List<VehicleOrder> values = scatterGather(() -> getLocalByIndexRange(indexStoreName, from, to), remoteQuery, localOnly);
+        values.sort(Comparator.comparing((VehicleOrder value) -> firstDateInRange(value, plannedDate, from, to))
+                .thenComparing(VehicleOrder::getOrderNumber));
+        return values;
+    }
+
+    private List<VehicleOrder> getLocalByIndexRange(String indexStoreName, LocalDate from, LocalDate to) {
+        ReadOnlyKeyValueStore<String, String> index = getQueryableStore(indexStoreName);
+        ReadOnlyKeyValueStore<String, VehicleOrder> store = getQueryableStore();
+        // an order with more than one date in the range is found more than once
+        Set<String> keys = new LinkedHashSet<>();
+        // all index keys of the last date are smaller than the next possible term
+        String fromKey = from != null ? from.toString() : null;
+        String toKey = to != null ? to.toString() + (char) (SecondaryIndexProcessor.SEPARATOR + 1) : null;
+        try (KeyValueIterator<String, String> iterator = index.range(fromKey, toKey)) {
+            while (iterator.hasNext()) {
+                keys.add(iterator.next().value);
+            }
+        }
+        return keys.stream().map(store::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private static LocalDate firstDateInRange(VehicleOrder value, Function<OrderPerPlant, LocalDate> plannedDate,
+            LocalDate from, LocalDate to) {
+        return datesInRange(value, plannedDate, from, to)
+                .min(Comparator.naturalOrder())
+                .orElse(LocalDate.MAX);
+    }
+
+    private static boolean hasDateInRange(VehicleOrder value, Function<OrderPerPlant, LocalDate> plannedDate,
+            LocalDate from, LocalDate to) {
+        return datesInRange(value, plannedDate, from, to).findAny().isPresent();
+    }
+
+    private static Stream<LocalDate> datesInRange(VehicleOrder value, Function<OrderPerPlant, LocalDate> plannedDate,
+            LocalDate from, LocalDate to) {
+        if (value.getOrderPerPlant() == null) {
+            return Stream.empty();
+        }
+        return value.getOrderPerPlant().stream()
+                .map(plannedDate)
+                .filter(Objects::nonNull)
+                .filter(date -> (from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to)));
+    }
+
+    private List<VehicleOrder> getLocalByIndex(String indexStoreName, String term) {
+        ReadOnlyKeyValueStore<String, String> index = getQueryableStore(indexStoreName);
+        ReadOnlyKeyValueStore<String, VehicleOrder> store = getQueryableStore();
+        List<VehicleOrder> values = new ArrayList<>();
+        try (KeyValueIterator<String, String> iterator = index.prefixScan(SecondaryIndexProcessor.prefix(term), new StringSerializer())) {
+            while (iterator.hasNext()) {
+                VehicleOrder value = store.get(iterator.next().value);
+                if (value != null) {
+                    values.add(value);
+                }
+            }
+        }
+        return values;
     }
 
 }
@@ -0,0 +1,328 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import com.bmw.cloudadoption.vehicleorder.entity.AssemblyLine;
+import com.bmw.cloudadoption.vehicleorder.entity.LoadGeneratorConfig;
+import com.bmw.cloudadoption.vehicleorder.entity.LoadGeneratorReport;
+import com.bmw.cloudadoption.vehicleorder.entity.OrderPerPlant;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import io.smallrye.reactive.messaging.kafka.OutgoingKafkaRecordMetadata;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Channel;
+import org.eclipse.microprofile.reactive.messaging.Emitter;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.eclipse.microprofile.reactive.messaging.Metadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Generates synthetic vehicle orders and sends them through the same
+ * channels as the REST API, to size clusters and reproduce production load.
+ * One run at a time is executed on a scheduler thread, which sends the due
+ * records every tick. The number of unacknowledged records is bounded, so a
+ * slow cluster lowers the achieved rate instead of the memory.
+ */
+@ApplicationScoped
+public class VehicleOrderLoadGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VehicleOrderLoadGenerator.class);
+
+    private static final long TICK_MILLIS = 10;
+    // number of most recent latencies the percentiles are computed from
+    private static final int LATENCY_SAMPLES = 1 << 16;
+    private static final LocalDate FIRST_PLANNED_DAY = LocalDate.now();
+    private static final int PLANNED_DAYS = 365;
+
+    @Inject
+    @Channel("kafka")
+    Emitter<VehicleOrder> emitter;
+
+    @Inject
+    @Channel("kafka-empty")
+    Emitter<String> allToNullChannel;
+
+    @ConfigProperty(name = "KAFKA_VEHICLE_ORDER_TOPIC")
+    String entityTopic;
+
+    // maximum number of records sent but not yet acknowledged, must fit into the emitter buffer
+    @ConfigProperty(name = "vehicleorder.load-generator.max-in-flight", defaultValue = "1000")
+    int maxInFlight;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "vehicle-order-load-generator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Run run;
+
+    /**
+     * Starts a new run.
+     *
+     * @param config shape of the load
+     * @return report of the started run
+     * @throws IllegalArgumentException if the config is invalid
+     * @throws IllegalStateException if a run is still running
+     */
+    public synchronized LoadGeneratorReport start(LoadGeneratorConfig config) {
+        validate(config);
+        if (run != null && run.isRunning()) {
+            throw new IllegalStateException("The load generator is already running");
+        }
+        LOGGER.info("Starting load generator: {}", config);
+        run = new Run(config);
+        run.schedule = scheduler.scheduleAtFixedRate(run::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        return run.report();
+    }
+
+    /**
+     * Stops the current run, records in flight are still acknowledged.
+     *
+     * @return report of the stopped run, null if there was no run
+     */
+    public synchronized LoadGeneratorReport stop() {
+        if (run == null) {
+            return null;
+        }
+        run.finish();
+        return run.report();
+    }
+
+    /**
+     * @return report of the current or last run, null if there was no run
+     */
+    public LoadGeneratorReport report() {
+        Run current = run;
+        return current != null ? current.report() : null;
+    }
+
+    @PreDestroy
+    void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    private static void validate(LoadGeneratorConfig config) {
+        if (config.getRatePerSecond() <= 0 || config.getCount() < 0 || config.getKeySpace() <= 0) {
+            throw new IllegalArgumentException("ratePerSecond and keySpace must be positive, count must not be negative");
+        }
+        if (config.getPlantWeights() == null || config.getPlantWeights().isEmpty()
+                || config.getPlantWeights().values().stream().anyMatch(weight -> weight == null || weight < 0)
+                || config.getPlantWeights().values().stream().mapToDouble(Double::doubleValue).sum() <= 0) {
+            throw new IllegalArgumentException("plantWeights must contain at least one plant with a positive weight");
+        }
+        long plantsWithWeight = config.getPlantWeights().values().stream().filter(weight -> weight > 0).count();
+        if (config.getMinPlantsPerOrder() < 1 || config.getMaxPlantsPerOrder() < config.getMinPlantsPerOrder()
+                || config.getMaxPlantsPerOrder() > plantsWithWeight) {
+            throw new IllegalArgumentException("Plants per order must be between 1 and the number of plants with a positive weight");
+        }
+        if (config.getAssemblyLinesPerPlant() < 1 || config.getAssemblyLineSkew() < 0) {
+            throw new IllegalArgumentException("assemblyLinesPerPlant must be positive, assemblyLineSkew must not be negative");
+        }
+        if (config.getVehicleIds() == null || config.getVehicleIds().isEmpty()) {
+            throw new IllegalArgumentException("vehicleIds must not be empty");
+        }
+        if (config.getUpdateRatio() < 0 || config.getDeleteRatio() < 0 || config.getUpdateRatio() + config.getDeleteRatio() > 1) {
+            throw new IllegalArgumentException("updateRatio and deleteRatio must not be negative and at most 1 in sum");
+        }
+    }
+
+    /**
+     * One run of the load generator, ticked by the scheduler thread only.
+     */
+    private final class Run {
+
+        private final LoadGeneratorConfig config;
+        private final SplittableRandom random;
+        private final String[] plants;
+        private final double[] cumulativePlantWeights;
+        private final double[] cumulativeLineWeights;
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+
+        private final long startNanos = System.nanoTime();
+        private volatile long endNanos;
+        private long lastTickNanos = startNanos;
+        private double credit;
+        // number of order numbers used so far
+        private int createdKeys;
+        private volatile ScheduledFuture<?> schedule;
+
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong acknowledged = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong creates = new AtomicLong();
+        private final AtomicLong updates = new AtomicLong();
+        private final AtomicLong deletes = new AtomicLong();
+        private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_SAMPLES);
+        private final AtomicLong latencyCount = new AtomicLong();
+
+        private Run(LoadGeneratorConfig config) {
+            this.config = config;
+            this.random = config.getSeed() != null ? new SplittableRandom(config.getSeed()) : new SplittableRandom();
+            this.plants = config.getPlantWeights().keySet().toArray(new String[0]);
+            this.cumulativePlantWeights = cumulative(config.getPlantWeights().values().stream().mapToDouble(Double::doubleValue).toArray());
+            double[] lineWeights = new double[config.getAssemblyLinesPerPlant()];
+            for (int line = 0; line < lineWeights.length; line++) {
+                lineWeights[line] = 1 / Math.pow(line + 1, config.getAssemblyLineSkew());
+            }
+            this.cumulativeLineWeights = cumulative(lineWeights);
+        }
+
+        private boolean isRunning() {
+            return endNanos == 0;
+        }
+
+        private void tick() {
+            try {
+                long now = System.nanoTime();
+                // credit is limited, so a stalled cluster does not cause a burst afterwards
+                credit = Math.min(credit + config.getRatePerSecond() * (now - lastTickNanos) / 1e9, maxInFlight);
+                lastTickNanos = now;
+                while (credit >= 1 && sent.get() < config.getCount() && inFlight.tryAcquire()) {
+                    credit--;
+                    sendNext();
+                }
+                if (sent.get() >= config.getCount() && inFlight.availablePermits() == maxInFlight) {
+                    finish();
+                    LOGGER.info("Load generator finished: {}", report());
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Load generator failed", e);
+                finish();
+            }
+        }
+
+        private void finish() {
+            if (endNanos == 0) {
+                endNanos = System.nanoTime();
+            }
+            if (schedule != null) {
+                schedule.cancel(false);
+            }
+        }
+
+        private void sendNext() {
+            double operation = random.nextDouble();
+            String key;
+            if (createdKeys > 0 && operation < config.getDeleteRatio()) {
+                key = existingKey();
+                deletes.incrementAndGet();
+                send(allToNullChannel, "tombstone", key);
+                return;
+            }
+            if (createdKeys > 0 && (operation < config.getDeleteRatio() + config.getUpdateRatio() || createdKeys >= config.getKeySpace())) {
+                key = existingKey();
+                updates.incrementAndGet();
+            } else {
+                key = config.getKeyPrefix() + createdKeys++;
+                creates.incrementAndGet();
+            }
+            send(emitter, vehicleOrder(key), key);
+        }
+
+        private <T> void send(Emitter<T> channel, T payload, String key) {
+            OutgoingKafkaRecordMetadata<String> metadata = OutgoingKafkaRecordMetadata.<String>builder()
+                    .withKey(key)
+                    .withTopic(entityTopic)
+                    .build();
+            long sentNanos = System.nanoTime();
+            sent.incrementAndGet();
+            channel.send(Message.of(payload, Metadata.of(metadata),
+                    () -> {
+                        recordLatency(System.nanoTime() - sentNanos);
+                        acknowledged.incrementAndGet();
+                        inFlight.release();
+                        return CompletableFuture.completedFuture(null);
+                    },
+                    failure -> {
+                        failed.incrementAndGet();
+                        inFlight.release();
+                        return CompletableFuture.completedFuture(null);
+                    }));
+        }
+
+        private String existingKey() {
+            return config.getKeyPrefix() + random.nextInt(createdKeys);
+        }
+
+        private VehicleOrder vehicleOrder(String key) {
+            int plantCount = config.getMinPlantsPerOrder() + random.nextInt(config.getMaxPlantsPerOrder() - config.getMinPlantsPerOrder() + 1);
+            Set<String> orderPlants = new LinkedHashSet<>();
+            while (orderPlants.size() < plantCount) {
+                orderPlants.add(plants[pick(cumulativePlantWeights)]);
+            }
+            LocalDate start = FIRST_PLANNED_DAY.plusDays(random.nextInt(PLANNED_DAYS));
+            List<OrderPerPlant> orderPerPlant = new ArrayList<>(plantCount);
+            for (String plant : orderPlants) {
+                int line = pick(cumulativeLineWeights);
+                LocalDate end = start.plusDays(1 + random.nextInt(3));
+                orderPerPlant.add(new OrderPerPlant(plant, start, end,
+                        new AssemblyLine(plant, "R" + line / 4, String.format("%02d", line % 4 + 1))));
+                start = end.plusDays(random.nextInt(3));
+            }
+            List<String> vehicleIds = config.getVehicleIds();
+            return new VehicleOrder(key, vehicleIds.get(random.nextInt(vehicleIds.size())), orderPerPlant);
+        }
+
+        private int pick(double[] cumulativeWeights) {
+            double value = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+            int index = Arrays.binarySearch(cumulativeWeights, value);
+            return Math.min(index >= 0 ? index + 1 : -index - 1, cumulativeWeights.length - 1);
+        }
+
+        private void recordLatency(long nanos) {
+            latencies.set((int) (latencyCount.getAndIncrement() % LATENCY_SAMPLES), nanos);
+        }
+
+        private LoadGeneratorReport report() {
+            long elapsedNanos = (isRunning() ? System.nanoTime() : endNanos) - startNanos;
+            long[] samples = new long[(int) Math.min(latencyCount.get(), LATENCY_SAMPLES)];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = latencies.get(i);
+            }
+            Arrays.sort(samples);
+            return new LoadGeneratorReport(isRunning(), config.getCount(), sent.get(), acknowledged.get(), failed.get(),
+                    creates.get(), updates.get(), deletes.get(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    config.getRatePerSecond(), elapsedNanos > 0 ? acknowledged.get() * 1e9 / elapsedNanos : 0,
+                    percentileMillis(samples, 0.5), percentileMillis(samples, 0.99),
+                    samples.length > 0 ? samples[samples.length - 1] / 1e6 : 0);
+        }
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double[] cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulative[i] = sum;
+        }
+        return cumulative;
+    }
+
+    private static double percentileMillis(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,116 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import com.bmw.cloudadoption.vehicleorder.TopologyProducer;
+import com.bmw.cloudadoption.vehicleorder.control.serdes.StoreValueFormat;
+import com.bmw.cloudadoption.vehicleorder.control.serdes.VehicleOrderInterner;
+import com.bmw.cloudadoption.vehicleorder.entity.NearCacheStats;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.kafka.client.serialization.JsonbDeserializer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.Serializer;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Incoming;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.json.bind.JsonbException;
+
+/**
+ * Near cache for vehicle orders read from other instances. Every instance
+ * consumes all partitions of the order topic with its own consumer group, so
+ * cached orders are replaced on update and removed on deletion. The topic
+ * also contains conditional writes the {@link ConditionalUpsertProcessor}
+ * rejected, so a conditional update replaces a cached order only if the
+ * cached order matches its condition.
+ */
+@ApplicationScoped
+public class VehicleOrderNearCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VehicleOrderNearCache.class);
+
+    private static final String CACHE_NAME = "vehicle-order-near-cache";
+
+    @Inject
+    MeterRegistry registry;
+
+    @ConfigProperty(name = "vehicleorder.near-cache.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "vehicleorder.near-cache.max-size", defaultValue = "10000")
+    long maxSize;
+
+    @ConfigProperty(name = "vehicleorder.near-cache.ttl", defaultValue = "30s")
+    Duration timeToLive;
+
+    // format of the orders inside the state-stores, versions are hashes of the stored bytes
+    @ConfigProperty(name = "vehicleorder.store.value-format", defaultValue = "json")
+    StoreValueFormat storeValueFormat;
+
+    private Serializer<VehicleOrder> storeSerializer;
+
+    private final JsonbDeserializer<VehicleOrder> deserializer = new JsonbDeserializer<>(VehicleOrder.class);
+
+    private NearCache<String, VehicleOrder> cache = NearCache.disabled();
+
+    @PostConstruct
+    void init() {
+        storeSerializer = storeValueFormat.vehicleOrderSerde().serializer();
+        if (enabled) {
+            cache = new NearCache<>(maxSize, timeToLive);
+            cache.bindTo(registry, CACHE_NAME);
+        }
+    }
+
+    public NearCache<String, VehicleOrder> getCache() {
+        return cache;
+    }
+
+    public NearCacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Applies an update or tombstone of the order topic to the cache. A
+     * conditional update the instance hosting the order may have rejected
+     * replaces the cached order only if it matches the condition, otherwise
+     * the cached order is removed.
+     *
+     * @param record of the order topic, the value is the JSON of the order
+     */
+    @Incoming("vehicle-order-changes")
+    public void onChange(ConsumerRecord<String, byte[]> record) {
+        if (!cache.isEnabled() || record.key() == null) {
+            return;
+        }
+        VehicleOrder value = null;
+        if (record.value() != null) {
+            try {
+                value = VehicleOrderInterner.intern(deserializer.deserialize(record.topic(), record.value()));
+            } catch (SerializationException | JsonbException e) {
+                LOGGER.warn("Cannot read order {}, removing it from the near cache", record.key(), e);
+            }
+        }
+        Header ifMatch = record.headers().lastHeader(ConditionalUpsertProcessor.IF_MATCH_HEADER);
+        if (ifMatch == null) {
+            cache.update(record.key(), value);
+        } else {
+            String condition = new String(ifMatch.value(), StandardCharsets.UTF_8);
+            cache.update(record.key(), value, cached -> matches(cached, condition));
+        }
+    }
+
+    private boolean matches(VehicleOrder cached, String condition) {
+        return ConditionalUpsertProcessor.ANY.equals(condition)
+                || condition.equals(StoredValues.version(storeSerializer.serialize(TopologyProducer.VEHICLE_ORDER_STORE_NAME, cached)));
+    }
+}
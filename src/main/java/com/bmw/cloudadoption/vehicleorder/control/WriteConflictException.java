@@ -0,0 +1,15 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+/**
+ * Thrown if a conditional write has been rejected, because the entry no longer
+ * has the version the writer expected. The writer has to read the entry again
+ * before retrying.
+ */
+public class WriteConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public WriteConflictException(String message) {
+        super(message);
+    }
+}
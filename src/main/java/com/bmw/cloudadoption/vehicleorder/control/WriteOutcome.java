@@ -0,0 +1,24 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+/**
+ * Outcome of a record written to the backing topic, as seen by the topology of
+ * the instance processing its partition.
+ */
+public enum WriteOutcome {
+
+    /**
+     * The record has been applied to the state-store.
+     */
+    APPLIED,
+    /**
+     * The record has been dropped, its condition did not match the current
+     * value, see {@link ConditionalUpsertProcessor}.
+     */
+    REJECTED,
+    /**
+     * The record has not been seen by the topology of this instance, e.g. it
+     * has been processed before a rebalance or not in time. The state-store has
+     * to be read to find out.
+     */
+    UNKNOWN
+}
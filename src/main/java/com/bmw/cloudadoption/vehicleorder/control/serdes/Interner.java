@@ -0,0 +1,50 @@
+package com.bmw.cloudadoption.vehicleorder.control.serdes;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded, thread-safe dictionary of canonical instances of immutable values.
+ * Equal values are replaced by one shared instance. When the dictionary is
+ * full, new values are returned as they are.
+ *
+ * @param <T> type of the immutable values
+ */
+public class Interner<T> {
+
+    private final Map<T, T> canonicalValues = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    /**
+     * @param maxSize maximum number of canonical values kept
+     */
+    public Interner(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param value to canonicalize, may be {@code null}
+     * @return the canonical instance equal to the value, or the value itself
+     */
+    public T intern(T value) {
+        if (value == null) {
+            return null;
+        }
+        T canonical = canonicalValues.get(value);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (canonicalValues.size() >= maxSize) {
+            return value;
+        }
+        canonical = canonicalValues.putIfAbsent(value, value);
+        return canonical != null ? canonical : value;
+    }
+
+    /**
+     * @return number of canonical values kept
+     */
+    public int size() {
+        return canonicalValues.size();
+    }
+}
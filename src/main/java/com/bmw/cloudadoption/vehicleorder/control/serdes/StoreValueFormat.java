@@ -0,0 +1,30 @@
+package com.bmw.cloudadoption.vehicleorder.control.serdes;
+
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import io.quarkus.kafka.client.serialization.JsonbSerde;
+import org.apache.kafka.common.serialization.Serde;
+
+/**
+ * Formats vehicle orders can be kept in state stores, changelogs and
+ * repartition topics. The backing topic itself always stays JSON.
+ */
+public enum StoreValueFormat {
+
+    /**
+     * JSON-B, same format as the backing topic.
+     */
+    JSON,
+    /**
+     * Binary format, see {@link VehicleOrderBinarySerializer}. Reads
+     * JSON records as well, so switching from JSON needs no migration.
+     */
+    BINARY;
+
+    /**
+     * @return serde for vehicle orders in this format
+     */
+    public Serde<VehicleOrder> vehicleOrderSerde() {
+        return this == BINARY ? new VehicleOrderBinarySerde() : new JsonbSerde<>(VehicleOrder.class);
+    }
+}
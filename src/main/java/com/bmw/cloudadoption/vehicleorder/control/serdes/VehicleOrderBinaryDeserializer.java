@@ -0,0 +1,133 @@
+package com.bmw.cloudadoption.vehicleorder.control.serdes;
+
+import com.bmw.cloudadoption.vehicleorder.entity.AssemblyLine;
+import com.bmw.cloudadoption.vehicleorder.entity.OrderPerPlant;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import io.quarkus.kafka.client.serialization.JsonbDeserializer;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deserializes records written by {@link VehicleOrderBinarySerializer}.
+ * Records without the binary header are JSON records written before the
+ * binary format was enabled, they are read with JSON-B, so existing state
+ * stores and changelogs migrate on read. Low-cardinality fields are
+ * canonicalized via {@link VehicleOrderInterner}.
+ */
+public class VehicleOrderBinaryDeserializer implements Deserializer<VehicleOrder> {
+
+    private final JsonbDeserializer<VehicleOrder> jsonDeserializer = new JsonbDeserializer<>(VehicleOrder.class);
+
+    @Override
+    public VehicleOrder deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (!isBinary(data)) {
+            return VehicleOrderInterner.intern(jsonDeserializer.deserialize(topic, data));
+        }
+        if (data.length < 2
+                || data[1] != VehicleOrderBinarySerializer.VERSION && data[1] != VehicleOrderBinarySerializer.VERSION_1) {
+            throw new SerializationException("Unknown binary format version of VehicleOrder record");
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(data, 2, data.length - 2);
+        // strings read so far, version 1 has no string references
+        List<String> strings = data[1] == VehicleOrderBinarySerializer.VERSION_1 ? null : new ArrayList<>();
+        VehicleOrder vehicleOrder = new VehicleOrder();
+        vehicleOrder.setOrderNumber(readString(in, strings, false));
+        vehicleOrder.setVehicleId(readString(in, strings, true));
+
+        long sizePlusOne = readVarLong(in);
+        if (sizePlusOne != VehicleOrderBinarySerializer.NULL_LIST) {
+            // an empty list is written as 1 and read back as empty list, not as null
+            int size = (int) sizePlusOne - 1;
+            List<OrderPerPlant> orderPerPlant = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                orderPerPlant.add(readOrderPerPlant(in, strings));
+            }
+            vehicleOrder.setOrderPerPlant(orderPerPlant);
+        }
+        return vehicleOrder;
+    }
+
+    /**
+     * @param data serialized vehicle order
+     * @return true if the record is in the binary format, false if it is JSON
+     */
+    public static boolean isBinary(byte[] data) {
+        return data.length > 0 && data[0] == VehicleOrderBinarySerializer.MAGIC;
+    }
+
+    private static OrderPerPlant readOrderPerPlant(ByteBuffer in, List<String> strings) {
+        if (in.get() == 0) {
+            return null;
+        }
+        OrderPerPlant plant = new OrderPerPlant();
+        plant.setPlantId(readString(in, strings, true));
+        plant.setPlannedOrderStartDate(readDate(in));
+        plant.setPlannedOrderEndDate(readDate(in));
+        if (in.get() != 0) {
+            plant.setAssemblyLine(new AssemblyLine(readString(in, strings, true), readString(in, strings, true),
+                    readString(in, strings, true)));
+        }
+        return plant;
+    }
+
+    private static String readString(ByteBuffer in, List<String> strings, boolean intern) {
+        long value = readVarLong(in);
+        if (value == 0) {
+            return null;
+        }
+        int length;
+        if (strings == null) {
+            length = (int) value - 1;
+        } else if ((value & 1) == 0) {
+            return strings.get((int) (value >>> 1) - 1);
+        } else {
+            length = (int) (value >>> 1);
+        }
+        String string = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        if (intern) {
+            string = VehicleOrderInterner.STRINGS.intern(string);
+        }
+        if (strings != null) {
+            strings.add(string);
+        }
+        return string;
+    }
+
+    private static LocalDate readDate(ByteBuffer in) {
+        long value = readVarLong(in);
+        if (value == 0) {
+            return null;
+        }
+        long zigZag = value - 1;
+        return VehicleOrderInterner.DATES.intern(LocalDate.ofEpochDay((zigZag >>> 1) ^ -(zigZag & 1)));
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Malformed variable-length integer in VehicleOrder record");
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+}
@@ -0,0 +1,16 @@
+package com.bmw.cloudadoption.vehicleorder.control.serdes;
+
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import org.apache.kafka.common.serialization.Serdes;
+
+/**
+ * Serde for the binary format of {@link VehicleOrder}, used for state
+ * stores and their changelogs. Reads JSON records as well.
+ */
+public class VehicleOrderBinarySerde extends Serdes.WrapperSerde<VehicleOrder> {
+
+    public VehicleOrderBinarySerde() {
+        super(new VehicleOrderBinarySerializer(), new VehicleOrderBinaryDeserializer());
+    }
+}
@@ -0,0 +1,131 @@
+package com.bmw.cloudadoption.vehicleorder.control.serdes;
+
+import com.bmw.cloudadoption.vehicleorder.entity.AssemblyLine;
+import com.bmw.cloudadoption.vehicleorder.entity.OrderPerPlant;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serializes a {@link VehicleOrder} into a versioned binary format.
+ * <p>
+ * Every record starts with {@link #MAGIC} and the format version, so readers
+ * can tell it apart from JSON records. Lengths and dates are written as
+ * variable-length integers, dates as epoch days. {@code null} is encoded as 0,
+ * so every date is shifted by one. The orderPerPlant list is written as
+ * {@link #NULL_LIST} if it is {@code null}, otherwise as its size plus one,
+ * so an empty list (1) stays distinct from a missing one.
+ * <p>
+ * Since version 2, a string that already occurred in the record (e.g. the
+ * plantId of the assembly line) is written as reference to its first
+ * occurrence. Odd values are literals ({@code length << 1 | 1}), even values
+ * are references ({@code (index + 1) << 1}).
+ */
+public class VehicleOrderBinarySerializer implements Serializer<VehicleOrder> {
+
+    /**
+     * First byte of every binary record, JSON never starts with it.
+     */
+    static final byte MAGIC = 0;
+
+    /**
+     * Current version of the format.
+     */
+    static final byte VERSION = 2;
+
+    /**
+     * Version without string references, still readable.
+     */
+    static final byte VERSION_1 = 1;
+
+    /**
+     * Written instead of the list size if the orderPerPlant list is {@code null}.
+     */
+    static final long NULL_LIST = 0;
+
+    // typical size of an order with one plant
+    private static final int INITIAL_SIZE = 64;
+
+    @Override
+    public byte[] serialize(String topic, VehicleOrder vehicleOrder) {
+        if (vehicleOrder == null) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_SIZE);
+        out.write(MAGIC);
+        out.write(VERSION);
+        // strings written so far, an order contains only a handful of them
+        List<String> strings = new ArrayList<>();
+        writeString(out, strings, vehicleOrder.getOrderNumber());
+        writeString(out, strings, vehicleOrder.getVehicleId());
+
+        List<OrderPerPlant> orderPerPlant = vehicleOrder.getOrderPerPlant();
+        if (orderPerPlant == null) {
+            writeVarLong(out, NULL_LIST);
+        } else {
+            writeVarLong(out, orderPerPlant.size() + 1L);
+            for (OrderPerPlant plant : orderPerPlant) {
+                writeOrderPerPlant(out, strings, plant);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeOrderPerPlant(ByteArrayOutputStream out, List<String> strings, OrderPerPlant plant) {
+        out.write(plant == null ? 0 : 1);
+        if (plant == null) {
+            return;
+        }
+        writeString(out, strings, plant.getPlantId());
+        writeDate(out, plant.getPlannedOrderStartDate());
+        writeDate(out, plant.getPlannedOrderEndDate());
+
+        AssemblyLine assemblyLine = plant.getAssemblyLine();
+        out.write(assemblyLine == null ? 0 : 1);
+        if (assemblyLine != null) {
+            writeString(out, strings, assemblyLine.getPlantId());
+            writeString(out, strings, assemblyLine.getLogisticLevel());
+            writeString(out, strings, assemblyLine.getAreaCode());
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, List<String> strings, String value) {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        int index = strings.indexOf(value);
+        if (index >= 0) {
+            writeVarLong(out, (index + 1L) << 1);
+            return;
+        }
+        strings.add(value);
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, ((long) bytes.length << 1) | 1);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeDate(ByteArrayOutputStream out, LocalDate date) {
+        if (date == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        // zig-zag encoding keeps dates before 1970 short as well
+        long epochDay = date.toEpochDay();
+        writeVarLong(out, ((epochDay << 1) ^ (epochDay >> 63)) + 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
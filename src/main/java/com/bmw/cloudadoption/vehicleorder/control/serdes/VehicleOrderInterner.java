@@ -0,0 +1,56 @@
+package com.bmw.cloudadoption.vehicleorder.control.serdes;
+
+import com.bmw.cloudadoption.vehicleorder.entity.AssemblyLine;
+import com.bmw.cloudadoption.vehicleorder.entity.OrderPerPlant;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import java.time.LocalDate;
+
+/**
+ * Shared dictionaries for the low-cardinality fields of vehicle orders:
+ * vehicleId, plantIds, logisticLevel, areaCode and the planned dates. Used by
+ * the deserializers, so all deserialized orders share one instance per value.
+ */
+public final class VehicleOrderInterner {
+
+    // a few dozen plants, lines and models, plus some years of planned days
+    private static final int MAX_STRINGS = 10_000;
+    private static final int MAX_DATES = 10_000;
+
+    static final Interner<String> STRINGS = new Interner<>(MAX_STRINGS);
+    static final Interner<LocalDate> DATES = new Interner<>(MAX_DATES);
+
+    private VehicleOrderInterner() {
+    }
+
+    /**
+     * Replaces the low-cardinality fields of the given order in place by their
+     * canonical instances.
+     *
+     * @param vehicleOrder to canonicalize, may be {@code null}
+     * @return the given order
+     */
+    public static VehicleOrder intern(VehicleOrder vehicleOrder) {
+        if (vehicleOrder == null) {
+            return null;
+        }
+        vehicleOrder.setVehicleId(STRINGS.intern(vehicleOrder.getVehicleId()));
+        if (vehicleOrder.getOrderPerPlant() != null) {
+            for (OrderPerPlant plant : vehicleOrder.getOrderPerPlant()) {
+                if (plant == null) {
+                    continue;
+                }
+                plant.setPlantId(STRINGS.intern(plant.getPlantId()));
+                plant.setPlannedOrderStartDate(DATES.intern(plant.getPlannedOrderStartDate()));
+                plant.setPlannedOrderEndDate(DATES.intern(plant.getPlannedOrderEndDate()));
+                AssemblyLine assemblyLine = plant.getAssemblyLine();
+                if (assemblyLine != null) {
+                    assemblyLine.setPlantId(STRINGS.intern(assemblyLine.getPlantId()));
+                    assemblyLine.setLogisticLevel(STRINGS.intern(assemblyLine.getLogisticLevel()));
+                    assemblyLine.setAreaCode(STRINGS.intern(assemblyLine.getAreaCode()));
+                }
+            }
+        }
+        return vehicleOrder;
+    }
+}
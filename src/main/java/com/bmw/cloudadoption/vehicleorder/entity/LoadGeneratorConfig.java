@@ -0,0 +1,52 @@
+package com.bmw.cloudadoption.vehicleorder.entity;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shape of the synthetic load of the load generator. Missing properties keep
+ * their defaults.
+ */
+@Data
+@RegisterForReflection
+@NoArgsConstructor
+public class LoadGeneratorConfig {
+
+    // records sent per second
+    private double ratePerSecond = 100;
+    // total number of records sent
+    private long count = 10_000;
+    // number of distinct order numbers, keyPrefix followed by a number
+    private int keySpace = 10_000;
+    private String keyPrefix = "LG";
+    // plantIds with their relative weights
+    private Map<String, Double> plantWeights = defaultPlantWeights();
+    // assembly lines per plant, picked with a Zipf distribution of the given exponent, 0 picks uniformly
+    private int assemblyLinesPerPlant = 8;
+    private double assemblyLineSkew = 1.0;
+    // length of the orderPerPlant list of an order
+    private int minPlantsPerOrder = 1;
+    private int maxPlantsPerOrder = 3;
+    private List<String> vehicleIds = Arrays.asList("G01", "G05", "G20", "G30", "U11", "I20");
+    // share of the records updating an existing order and deleting an order, the rest creates new orders
+    private double updateRatio = 0.2;
+    private double deleteRatio = 0.05;
+    // seed of the random numbers, random if missing
+    private Long seed;
+
+    private static Map<String, Double> defaultPlantWeights() {
+        Map<String, Double> plantWeights = new LinkedHashMap<>();
+        plantWeights.put("034.00", 4.0);
+        plantWeights.put("061.00", 2.0);
+        plantWeights.put("006.10", 2.0);
+        plantWeights.put("007.00", 1.0);
+        plantWeights.put("078.20", 1.0);
+        return plantWeights;
+    }
+}
@@ -0,0 +1,32 @@
+package com.bmw.cloudadoption.vehicleorder.entity;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of a load generator run, the latencies are measured from sending a
+ * record until it is acknowledged by Kafka.
+ */
+@Data
+@RegisterForReflection
+@AllArgsConstructor
+@NoArgsConstructor
+public class LoadGeneratorReport {
+
+    private boolean running;
+    private long count;
+    private long sent;
+    private long acknowledged;
+    private long failed;
+    private long creates;
+    private long updates;
+    private long deletes;
+    private long elapsedMillis;
+    private double targetRatePerSecond;
+    private double achievedRatePerSecond;
+    private double latencyP50Millis;
+    private double latencyP99Millis;
+    private double latencyMaxMillis;
+}
@@ -0,0 +1,23 @@
+package com.bmw.cloudadoption.vehicleorder.entity;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Statistics of the near cache of one instance.
+ */
+@Data
+@RegisterForReflection
+@AllArgsConstructor
+@NoArgsConstructor
+public class NearCacheStats {
+
+    private boolean enabled;
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private double hitRate;
+}
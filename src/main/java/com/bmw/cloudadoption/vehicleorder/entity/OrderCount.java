@@ -0,0 +1,19 @@
+package com.bmw.cloudadoption.vehicleorder.entity;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of orders of one group, e.g. of one plant.
+ */
+@Data
+@RegisterForReflection
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderCount {
+
+    private String group;
+    private long count;
+}
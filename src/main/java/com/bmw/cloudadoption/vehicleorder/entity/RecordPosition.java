@@ -0,0 +1,20 @@
+package com.bmw.cloudadoption.vehicleorder.entity;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Partition and offset of a record in the backing topic, as acknowledged by
+ * the broker.
+ */
+@Data
+@RegisterForReflection
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecordPosition {
+
+    private int partition;
+    private long offset;
+}
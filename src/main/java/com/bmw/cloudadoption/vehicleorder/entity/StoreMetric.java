@@ -0,0 +1,21 @@
+package com.bmw.cloudadoption.vehicleorder.entity;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One metric of a state-store of one task, e.g. the block cache usage.
+ */
+@Data
+@RegisterForReflection
+@AllArgsConstructor
+@NoArgsConstructor
+public class StoreMetric {
+
+    private String store;
+    private String taskId;
+    private String name;
+    private Object value;
+}
@@ -0,0 +1,24 @@
+package com.bmw.cloudadoption.vehicleorder.entity;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Change of a vehicle order as it has been applied to the state-store,
+ * {@code value} is {@code null} for deletions. Partition and offset of the
+ * record in the backing topic are the position in the change feed.
+ */
+@Data
+@RegisterForReflection
+@AllArgsConstructor
+@NoArgsConstructor
+public class VehicleOrderChange {
+
+    private String key;
+    private VehicleOrder value;
+    private int partition;
+    private long offset;
+    private long timestamp;
+}
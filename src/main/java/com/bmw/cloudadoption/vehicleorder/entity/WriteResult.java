@@ -0,0 +1,20 @@
+package com.bmw.cloudadoption.vehicleorder.entity;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of writing one entity as part of a batch, {@code status} uses the
+ * HTTP status code a single write of this entity would have returned.
+ */
+@Data
+@RegisterForReflection
+@AllArgsConstructor
+@NoArgsConstructor
+public class WriteResult {
+
+    private String key;
+    private int status;
+}
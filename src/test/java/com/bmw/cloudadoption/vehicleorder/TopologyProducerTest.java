@@ -0,0 +1,281 @@
+package com.bmw.cloudadoption.vehicleorder;
+
+import com.bmw.cloudadoption.vehicleorder.control.AppliedRecordRegistry;
+import com.bmw.cloudadoption.vehicleorder.control.ConditionalUpsertProcessor;
+import com.bmw.cloudadoption.vehicleorder.control.SecondaryIndexProcessor;
+import com.bmw.cloudadoption.vehicleorder.control.StoreBackend;
+import com.bmw.cloudadoption.vehicleorder.control.StoredValues;
+import com.bmw.cloudadoption.vehicleorder.control.WriteOutcome;
+import com.bmw.cloudadoption.vehicleorder.control.serdes.StoreValueFormat;
+import com.bmw.cloudadoption.vehicleorder.entity.AssemblyLine;
+import com.bmw.cloudadoption.vehicleorder.entity.OrderPerPlant;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import io.quarkus.kafka.client.serialization.JsonbSerializer;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.ValueAndTimestamp;
+import org.apache.kafka.streams.test.TestRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TopologyProducerTest {
+
+    private static final String TOPIC = "bmw.cloudadoption.VehicleMockOrder.v1";
+    private static final String KEY = "MB25042";
+    private static final Instant TIMESTAMP = Instant.parse("2022-05-11T08:00:00Z");
+
+    private final AppliedRecordRegistry appliedRecords = new AppliedRecordRegistry();
+
+    private final Serializer<VehicleOrder> storeSerializer = StoreValueFormat.BINARY.vehicleOrderSerde().serializer();
+
+    private TopologyTestDriver driver;
+    private TestInputTopic<String, VehicleOrder> orders;
+    private KeyValueStore<String, ValueAndTimestamp<VehicleOrder>> store;
+
+    @BeforeEach
+    public void init() {
+        TopologyProducer topologyProducer = new TopologyProducer();
+        topologyProducer.vehicleOrderTopic = TOPIC;
+        topologyProducer.storeValueFormat = StoreValueFormat.BINARY;
+        topologyProducer.storeBackend = StoreBackend.IN_MEMORY;
+        topologyProducer.lruMaxEntries = 100;
+        topologyProducer.appliedRecordRegistry = appliedRecords;
+
+        Properties config = new Properties();
+        config.put(StreamsConfig.APPLICATION_ID_CONFIG, "vehicle-order-topology-test");
+        config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        driver = new TopologyTestDriver(topologyProducer.buildTopology(), config);
+        orders = driver.createInputTopic(TOPIC, new StringSerializer(), new JsonbSerializer<>());
+        store = driver.getTimestampedKeyValueStore(TopologyProducer.VEHICLE_ORDER_STORE_NAME);
+    }
+
+    @AfterEach
+    public void close() {
+        driver.close();
+    }
+
+    @Test
+    public void firstWriteIsStoredWithItsTimestamp() {
+        VehicleOrder vehicleOrder = vehicleOrder("G01");
+        CompletableFuture<WriteOutcome> outcome = awaitOutcome(0);
+
+        orders.pipeInput(new TestRecord<>(KEY, vehicleOrder, TIMESTAMP));
+
+        assertEquals(ValueAndTimestamp.make(vehicleOrder, TIMESTAMP.toEpochMilli()), store.get(KEY));
+        assertOutcome(WriteOutcome.APPLIED, outcome);
+    }
+
+    @Test
+    public void outcomeOfProcessedRecordsIsRemembered() {
+        VehicleOrder current = vehicleOrder("G01");
+        orders.pipeInput(KEY, current);
+        orders.pipeInput(conditional(vehicleOrder("G02"), version(vehicleOrder("G09"))));
+        orders.pipeInput(conditional(vehicleOrder("G03"), version(current)));
+
+        assertOutcome(WriteOutcome.APPLIED, awaitOutcome(0));
+        assertOutcome(WriteOutcome.REJECTED, awaitOutcome(1));
+        assertOutcome(WriteOutcome.APPLIED, awaitOutcome(2));
+    }
+
+    @Test
+    public void conditionalFirstWriteIsRejected() {
+        VehicleOrder vehicleOrder = vehicleOrder("G01");
+        CompletableFuture<WriteOutcome> outcome = awaitOutcome(0);
+
+        orders.pipeInput(conditional(vehicleOrder, ConditionalUpsertProcessor.ANY));
+
+        assertNull(store.get(KEY));
+        assertOutcome(WriteOutcome.REJECTED, outcome);
+    }
+
+    @Test
+    public void acceptsWriteMatchingCurrentVersion() {
+        VehicleOrder current = vehicleOrder("G01");
+        VehicleOrder update = vehicleOrder("G02");
+        orders.pipeInput(KEY, current);
+
+        orders.pipeInput(conditional(update, version(current)));
+
+        assertEquals(update, store.get(KEY).value());
+    }
+
+    @Test
+    public void rejectsWriteOfOutdatedVersion() {
+        VehicleOrder outdated = vehicleOrder("G01");
+        VehicleOrder current = vehicleOrder("G02");
+        VehicleOrder update = vehicleOrder("G03");
+        orders.pipeInput(KEY, outdated);
+        orders.pipeInput(KEY, current);
+        CompletableFuture<WriteOutcome> outcome = awaitOutcome(2);
+
+        orders.pipeInput(conditional(update, version(outdated)));
+
+        assertEquals(current, store.get(KEY).value());
+        assertOutcome(WriteOutcome.REJECTED, outcome);
+    }
+
+    @Test
+    public void conditionalTombstoneDeletes() {
+        VehicleOrder current = vehicleOrder("G01");
+        orders.pipeInput(KEY, current);
+        CompletableFuture<WriteOutcome> outcome = awaitOutcome(1);
+
+        orders.pipeInput(conditional(null, version(current)));
+
+        assertNull(store.get(KEY));
+        assertOutcome(WriteOutcome.APPLIED, outcome);
+    }
+
+    @Test
+    public void vehicleIdIndexFollowsUpdatesAndDeletes() {
+        orders.pipeInput(KEY, vehicleOrder("G01"));
+        assertEquals(Collections.singletonList(SecondaryIndexProcessor.indexKey("G01", KEY)), keys(TopologyProducer.VEHICLE_ID_INDEX_STORE_NAME));
+
+        orders.pipeInput(KEY, vehicleOrder("G02"));
+        assertEquals(Collections.singletonList(SecondaryIndexProcessor.indexKey("G02", KEY)), keys(TopologyProducer.VEHICLE_ID_INDEX_STORE_NAME));
+
+        orders.pipeInput(KEY, null);
+        assertEquals(Collections.emptyList(), keys(TopologyProducer.VEHICLE_ID_INDEX_STORE_NAME));
+        assertEquals(Collections.emptyList(), keys(TopologyProducer.VEHICLE_ID_TERMS_STORE_NAME));
+    }
+
+    @Test
+    public void dateIndexesFollowUpdatesAndDeletes() {
+        LocalDate start = LocalDate.of(2022, 5, 11);
+        LocalDate end = LocalDate.of(2022, 5, 12);
+        orders.pipeInput(KEY, vehicleOrder(KEY, orderPerPlant("034.00", "034.00", start, end)));
+        assertEquals(Collections.singletonList(SecondaryIndexProcessor.indexKey("2022-05-11", KEY)), keys(TopologyProducer.START_DATE_INDEX_STORE_NAME));
+        assertEquals(Collections.singletonList(SecondaryIndexProcessor.indexKey("2022-05-12", KEY)), keys(TopologyProducer.END_DATE_INDEX_STORE_NAME));
+
+        // only the changed start date moves
+        orders.pipeInput(KEY, vehicleOrder(KEY, orderPerPlant("034.00", "034.00", start.minusDays(1), end)));
+        assertEquals(Collections.singletonList(SecondaryIndexProcessor.indexKey("2022-05-10", KEY)), keys(TopologyProducer.START_DATE_INDEX_STORE_NAME));
+        assertEquals(Collections.singletonList(SecondaryIndexProcessor.indexKey("2022-05-12", KEY)), keys(TopologyProducer.END_DATE_INDEX_STORE_NAME));
+
+        orders.pipeInput(KEY, null);
+        assertEquals(Collections.emptyList(), keys(TopologyProducer.START_DATE_INDEX_STORE_NAME));
+        assertEquals(Collections.emptyList(), keys(TopologyProducer.END_DATE_INDEX_STORE_NAME));
+    }
+
+    @Test
+    public void plantViewHoldsOrderUnderBothPlantIds() {
+        LocalDate day = LocalDate.of(2022, 5, 11);
+        VehicleOrder vehicleOrder = vehicleOrder(KEY, orderPerPlant("034.00", "035.00", day, day));
+        orders.pipeInput(KEY, vehicleOrder);
+        assertEquals(Arrays.asList(SecondaryIndexProcessor.indexKey("034.00", KEY), SecondaryIndexProcessor.indexKey("035.00", KEY)),
+                keys(TopologyProducer.PLANT_VIEW_STORE_NAME));
+        KeyValueStore<String, VehicleOrder> plantView = driver.getKeyValueStore(TopologyProducer.PLANT_VIEW_STORE_NAME);
+        assertEquals(vehicleOrder, plantView.get(SecondaryIndexProcessor.indexKey("035.00", KEY)));
+
+        orders.pipeInput(KEY, vehicleOrder(KEY, orderPerPlant("034.00", "034.00", day, day)));
+        assertEquals(Collections.singletonList(SecondaryIndexProcessor.indexKey("034.00", KEY)), keys(TopologyProducer.PLANT_VIEW_STORE_NAME));
+
+        orders.pipeInput(KEY, null);
+        assertEquals(Collections.emptyList(), keys(TopologyProducer.PLANT_VIEW_STORE_NAME));
+    }
+
+    @Test
+    public void countsFollowUpdatesAndDeletes() {
+        LocalDate day = LocalDate.of(2022, 5, 11);
+        String otherKey = "MB25043";
+        orders.pipeInput(KEY, vehicleOrder(KEY, orderPerPlant("034.00", "034.00", day, day)));
+        orders.pipeInput(otherKey, vehicleOrder(otherKey, orderPerPlant("034.00", "034.00", day, day)));
+        assertEquals(2, count(TopologyProducer.PLANT_COUNT_STORE_NAME, "034.00"));
+        assertEquals(2, count(TopologyProducer.ASSEMBLY_LINE_COUNT_STORE_NAME, "034.00/01/R0"));
+        assertEquals(2, count(TopologyProducer.PLANNED_DAY_COUNT_STORE_NAME, "034.00/2022-05-11"));
+
+        orders.pipeInput(otherKey, vehicleOrder(otherKey, orderPerPlant("036.00", "036.00", day.plusDays(1), day.plusDays(1))));
+        assertEquals(1, count(TopologyProducer.PLANT_COUNT_STORE_NAME, "034.00"));
+        assertEquals(1, count(TopologyProducer.PLANT_COUNT_STORE_NAME, "036.00"));
+        assertEquals(1, count(TopologyProducer.ASSEMBLY_LINE_COUNT_STORE_NAME, "034.00/01/R0"));
+        assertEquals(1, count(TopologyProducer.PLANNED_DAY_COUNT_STORE_NAME, "034.00/2022-05-11"));
+        assertEquals(1, count(TopologyProducer.PLANNED_DAY_COUNT_STORE_NAME, "036.00/2022-05-12"));
+
+        orders.pipeInput(KEY, null);
+        assertEquals(0, count(TopologyProducer.PLANT_COUNT_STORE_NAME, "034.00"));
+        assertEquals(0, count(TopologyProducer.ASSEMBLY_LINE_COUNT_STORE_NAME, "034.00/01/R0"));
+        assertEquals(0, count(TopologyProducer.PLANNED_DAY_COUNT_STORE_NAME, "034.00/2022-05-11"));
+    }
+
+    @Test
+    public void orderOfTwoPlantsIsCountedOncePerPlant() {
+        LocalDate day = LocalDate.of(2022, 5, 11);
+        orders.pipeInput(KEY, vehicleOrder(KEY, orderPerPlant("034.00", "035.00", day, day)));
+
+        // the second plant is only known from the assembly line
+        assertEquals(1, count(TopologyProducer.PLANT_COUNT_STORE_NAME, "034.00"));
+        assertEquals(1, count(TopologyProducer.PLANT_COUNT_STORE_NAME, "035.00"));
+        assertEquals(1, count(TopologyProducer.PLANNED_DAY_COUNT_STORE_NAME, "034.00/2022-05-11"));
+        assertEquals(1, count(TopologyProducer.PLANNED_DAY_COUNT_STORE_NAME, "035.00/2022-05-11"));
+    }
+
+    // the test driver writes to partition 0 of the topic, from offset 0 on
+    private CompletableFuture<WriteOutcome> awaitOutcome(long offset) {
+        return appliedRecords.awaitOutcome(TopologyProducer.VEHICLE_ORDER_STORE_NAME, 0, offset);
+    }
+
+    // a group whose orders are all gone keeps a count of 0
+    private long count(String storeName, String group) {
+        Long count = driver.<String, Long>getKeyValueStore(storeName).get(group);
+        return count != null ? count : 0;
+    }
+
+    private List<String> keys(String storeName) {
+        List<String> keys = new ArrayList<>();
+        try (KeyValueIterator<String, Object> iterator = driver.<String, Object>getKeyValueStore(storeName).all()) {
+            iterator.forEachRemaining(entry -> keys.add(entry.key));
+        }
+        return keys;
+    }
+
+    private String version(VehicleOrder vehicleOrder) {
+        return StoredValues.version(storeSerializer.serialize(TopologyProducer.VEHICLE_ORDER_STORE_NAME, vehicleOrder));
+    }
+
+    private static TestRecord<String, VehicleOrder> conditional(VehicleOrder vehicleOrder, String condition) {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(ConditionalUpsertProcessor.IF_MATCH_HEADER, condition.getBytes(StandardCharsets.UTF_8));
+        return new TestRecord<>(KEY, vehicleOrder, headers, TIMESTAMP);
+    }
+
+    private static void assertOutcome(WriteOutcome expected, CompletableFuture<WriteOutcome> outcome) {
+        assertTrue(outcome.isDone());
+        assertEquals(expected, outcome.join());
+    }
+
+    private static VehicleOrder vehicleOrder(String key, OrderPerPlant... orderPerPlant) {
+        return new VehicleOrder(key, "G01", Arrays.asList(orderPerPlant));
+    }
+
+    private static OrderPerPlant orderPerPlant(String plantId, String assemblyLinePlantId, LocalDate start, LocalDate end) {
+        return new OrderPerPlant(plantId, start, end, new AssemblyLine(assemblyLinePlantId, "R0", "01"));
+    }
+
+    private static VehicleOrder vehicleOrder(String vehicleId) {
+        AssemblyLine assemblyLine = new AssemblyLine("034.00", "R0", "01");
+        OrderPerPlant orderPerPlant = new OrderPerPlant("034.00", LocalDate.of(2022, 5, 11), LocalDate.of(2022, 5, 12), assemblyLine);
+        return new VehicleOrder(KEY, vehicleId, Collections.singletonList(orderPerPlant));
+    }
+}
@@ -0,0 +1,147 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import io.quarkus.runtime.configuration.MemorySize;
+import org.jboss.resteasy.plugins.interceptors.GZIPDecodingInterceptor;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GzipDecodingLimitTest {
+
+    private static final int MB = 1024 * 1024;
+
+    // larger than the 10 MB resteasy applies by default
+    private static final int PAYLOAD_SIZE = 12 * MB;
+
+    @Test
+    public void decompressesPayloadLargerThanDefaultLimit() throws IOException {
+        GZIPDecodingInterceptor interceptor = InteractiveQueriesBase.gzipDecodingInterceptor(
+                new MemorySize(BigInteger.valueOf(16L * MB)));
+
+        assertEquals(PAYLOAD_SIZE, interceptor.aroundReadFrom(new GzipContext(gzip(PAYLOAD_SIZE))));
+    }
+
+    @Test
+    public void rejectsPayloadLargerThanConfiguredLimit() throws IOException {
+        GZIPDecodingInterceptor interceptor = InteractiveQueriesBase.gzipDecodingInterceptor(
+                new MemorySize(BigInteger.valueOf(8L * MB)));
+        GzipContext context = new GzipContext(gzip(PAYLOAD_SIZE));
+
+        assertThrows(RuntimeException.class, () -> interceptor.aroundReadFrom(context));
+    }
+
+    private static byte[] gzip(int size) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(new byte[size]);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Context of a gzip encoded response, proceeding reads the whole entity
+     * and returns its size.
+     */
+    private static final class GzipContext implements ReaderInterceptorContext {
+
+        private final MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+        private InputStream inputStream;
+
+        private GzipContext(byte[] entity) {
+            this.inputStream = new ByteArrayInputStream(entity);
+            headers.putSingle(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        @Override
+        public Object proceed() throws IOException {
+            return inputStream.readAllBytes().length;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return inputStream;
+        }
+
+        @Override
+        public void setInputStream(InputStream is) {
+            this.inputStream = is;
+        }
+
+        @Override
+        public MultivaluedMap<String, String> getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return null;
+        }
+
+        @Override
+        public Collection<String> getPropertyNames() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void setProperty(String name, Object object) {
+        }
+
+        @Override
+        public void removeProperty(String name) {
+        }
+
+        @Override
+        public Annotation[] getAnnotations() {
+            return new Annotation[0];
+        }
+
+        @Override
+        public void setAnnotations(Annotation[] annotations) {
+        }
+
+        @Override
+        public Class<?> getType() {
+            return byte[].class;
+        }
+
+        @Override
+        public void setType(Class<?> type) {
+        }
+
+        @Override
+        public Type getGenericType() {
+            return byte[].class;
+        }
+
+        @Override
+        public void setGenericType(Type genericType) {
+        }
+
+        @Override
+        public MediaType getMediaType() {
+            return MediaType.APPLICATION_OCTET_STREAM_TYPE;
+        }
+
+        @Override
+        public void setMediaType(MediaType mediaType) {
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import com.bmw.cloudadoption.vehicleorder.TopologyProducer;
+import com.bmw.cloudadoption.vehicleorder.control.serdes.StoreValueFormat;
+import com.bmw.cloudadoption.vehicleorder.entity.AssemblyLine;
+import com.bmw.cloudadoption.vehicleorder.entity.OrderPerPlant;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import io.quarkus.kafka.client.serialization.JsonbSerde;
+import io.quarkus.kafka.client.serialization.JsonbSerializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.processor.StateStore;
+import org.apache.kafka.streams.state.QueryableStoreType;
+import org.apache.kafka.streams.state.Stores;
+import org.apache.kafka.streams.state.internals.StateStoreProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pins the store wrapping of kafka-streams {@link RawValueStore} relies on,
+ * with the vehicle-order-store as the topology builds it.
+ */
+public class RawValueStoreTest {
+
+    private static final String TOPIC = "bmw.cloudadoption.VehicleMockOrder.v1";
+    private static final String KEY = "MB25042";
+
+    private TopologyTestDriver driver;
+
+    @AfterEach
+    public void close() {
+        if (driver != null) {
+            driver.close();
+        }
+    }
+
+    @Test
+    public void readsJsonValuesAsStored() {
+        assertReadsStoredBytes(StoreValueFormat.JSON);
+    }
+
+    @Test
+    public void readsBinaryValuesAsStored() {
+        assertReadsStoredBytes(StoreValueFormat.BINARY);
+    }
+
+    // the stored bytes without the timestamp of the table are exactly the serialized value
+    private void assertReadsStoredBytes(StoreValueFormat format) {
+        VehicleOrder vehicleOrder = vehicleOrder();
+        StateStore store = start(format);
+        byte[] expected = format.vehicleOrderSerde().serializer().serialize(TopologyProducer.VEHICLE_ORDER_STORE_NAME, vehicleOrder);
+
+        assertTrue(RawValueStore.TYPE.accepts(store));
+        assertArrayEquals(expected, RawValueStore.get(store, key(KEY)));
+        assertNull(RawValueStore.get(store, key("MB00000")));
+
+        RawValueStore view = RawValueStore.TYPE.create(provider(store), TopologyProducer.VEHICLE_ORDER_STORE_NAME);
+        assertArrayEquals(expected, view.get(key(KEY)));
+        List<byte[]> all = view.all();
+        assertEquals(1, all.size());
+        assertArrayEquals(expected, all.get(0));
+    }
+
+    // the vehicle-order-store as built by TopologyProducer, a timestamped store materialized by the conditional upsert
+    private StateStore start(StoreValueFormat format) {
+        Serde<VehicleOrder> storeSerde = format.vehicleOrderSerde();
+        StreamsBuilder builder = new StreamsBuilder();
+        builder.addStateStore(Stores.timestampedKeyValueStoreBuilder(
+                StoreBackend.IN_MEMORY.primaryStore(TopologyProducer.VEHICLE_ORDER_STORE_NAME, 100), Serdes.String(), storeSerde));
+        builder.stream(TOPIC, Consumed.with(Serdes.String(), new JsonbSerde<>(VehicleOrder.class)))
+                .process(() -> new ConditionalUpsertProcessor<VehicleOrder>(TopologyProducer.VEHICLE_ORDER_STORE_NAME,
+                        new AppliedRecordRegistry(), vehicleOrder -> StoredValues.version(
+                                storeSerde.serializer().serialize(TopologyProducer.VEHICLE_ORDER_STORE_NAME, vehicleOrder))),
+                        TopologyProducer.VEHICLE_ORDER_STORE_NAME);
+
+        Properties config = new Properties();
+        config.put(StreamsConfig.APPLICATION_ID_CONFIG, "raw-value-store-test");
+        config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        driver = new TopologyTestDriver(builder.build(), config);
+        TestInputTopic<String, VehicleOrder> orders = driver.createInputTopic(TOPIC, new StringSerializer(), new JsonbSerializer<>());
+        orders.pipeInput(KEY, vehicleOrder());
+        // the store as kafka-streams hands it to queries and processors, i.e. the outermost wrapper
+        return driver.getStateStore(TopologyProducer.VEHICLE_ORDER_STORE_NAME);
+    }
+
+    // provider handing out the task store like the one of kafka-streams does for the accepted type
+    private static StateStoreProvider provider(StateStore store) {
+        return new StateStoreProvider() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> List<T> stores(String storeName, QueryableStoreType<T> queryableStoreType) {
+                return queryableStoreType.accepts(store) ? Collections.singletonList((T) store) : Collections.emptyList();
+            }
+        };
+    }
+
+    private static Bytes key(String key) {
+        return Bytes.wrap(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static VehicleOrder vehicleOrder() {
+        AssemblyLine assemblyLine = new AssemblyLine("034.00", "R0", "01");
+        OrderPerPlant orderPerPlant = new OrderPerPlant("034.00", LocalDate.of(2022, 5, 11), LocalDate.of(2022, 5, 12), assemblyLine);
+        return new VehicleOrder(KEY, "G01", Collections.singletonList(orderPerPlant));
+    }
+}
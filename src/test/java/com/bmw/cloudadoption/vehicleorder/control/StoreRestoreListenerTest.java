@@ -0,0 +1,44 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import com.bmw.cloudadoption.vehicleorder.TopologyProducer;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.streams.KafkaStreams;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StoreRestoreListenerTest {
+
+    private static final TopicPartition CHANGELOG_0 = new TopicPartition("vehicle-order-store-changelog", 0);
+    private static final TopicPartition CHANGELOG_1 = new TopicPartition("vehicle-order-store-changelog", 1);
+
+    private final StoreRestoreListener restoreListener = new StoreRestoreListener();
+
+    @BeforeEach
+    public void init() {
+        restoreListener.streamsStateListener = new StreamsStateListener();
+        restoreListener.init();
+    }
+
+    @Test
+    public void countsPartitionsUntilTheirRestoreEnds() {
+        restoreListener.onRestoreStart(CHANGELOG_0, TopologyProducer.VEHICLE_ORDER_STORE_NAME, 0, 100);
+        restoreListener.onRestoreStart(CHANGELOG_1, TopologyProducer.VEHICLE_ORDER_STORE_NAME, 0, 100);
+        assertEquals(2, restoreListener.getRestoringPartitions());
+
+        restoreListener.onRestoreEnd(CHANGELOG_0, TopologyProducer.VEHICLE_ORDER_STORE_NAME, 100);
+        assertEquals(1, restoreListener.getRestoringPartitions());
+    }
+
+    @Test
+    public void forgetsPartitionsOnceRunning() {
+        restoreListener.streamsStateListener.onChange(KafkaStreams.State.REBALANCING, KafkaStreams.State.RUNNING);
+        restoreListener.onRestoreStart(CHANGELOG_0, TopologyProducer.VEHICLE_ORDER_STORE_NAME, 0, 100);
+
+        // the task moved to another instance before its restore ended
+        restoreListener.streamsStateListener.onChange(KafkaStreams.State.RUNNING, KafkaStreams.State.REBALANCING);
+        assertEquals(0, restoreListener.getRestoringPartitions());
+    }
+}
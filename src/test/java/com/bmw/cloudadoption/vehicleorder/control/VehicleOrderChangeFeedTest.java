@@ -0,0 +1,185 @@
+package com.bmw.cloudadoption.vehicleorder.control;
+
+import com.bmw.cloudadoption.vehicleorder.TopologyProducer;
+import com.bmw.cloudadoption.vehicleorder.boundary.ChangeFeedSink;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrderChange;
+
+import org.jboss.resteasy.plugins.providers.sse.SseImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.SseEventSink;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VehicleOrderChangeFeedTest {
+
+    private static final String TOPIC = "bmw.cloudadoption.VehicleMockOrder.v1";
+
+    private static final int EVENTS_PER_PUBLISHER = 10_000;
+
+    private static final int QUEUE_SIZE = 1000;
+
+    private final VehicleOrderChangeFeed changeFeed = new VehicleOrderChangeFeed();
+
+    @BeforeEach
+    public void init() {
+        changeFeed.appliedRecords = new AppliedRecordRegistry();
+        changeFeed.streamsStateListener = new StreamsStateListener();
+        changeFeed.bufferSize = 100;
+        changeFeed.sendThreads = 2;
+        changeFeed.init();
+    }
+
+    @AfterEach
+    public void destroy() {
+        changeFeed.destroy();
+    }
+
+    @Test
+    public void clientDisconnectsWhileChangesArePublished() throws InterruptedException {
+        DisconnectingEventSink eventSink = new DisconnectingEventSink(100);
+        ChangeFeedSink sink = new ChangeFeedSink(eventSink, new SseImpl(), null, QUEUE_SIZE, changeFeed::execute);
+        sink.setCancel(changeFeed.subscribe(null, new ChangeFeedFilter(null, null), sink));
+
+        // local changes notify the sink holding the lock of the feed, relayed changes notify it directly
+        CountDownLatch start = new CountDownLatch(1);
+        Thread local = new Thread(() -> {
+            await(start);
+            for (int i = 0; i < EVENTS_PER_PUBLISHER; i++) {
+                changeFeed.appliedRecords.applied(appliedRecord(0, i));
+            }
+        });
+        Thread relayed = new Thread(() -> {
+            await(start);
+            for (int i = 0; i < EVENTS_PER_PUBLISHER; i++) {
+                sink.onChange(new VehicleOrderChange("MB" + i, vehicleOrder(i), 1, i, 0L));
+            }
+        });
+        local.start();
+        relayed.start();
+        start.countDown();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            local.join();
+            relayed.join();
+            assertTrue(eventSink.closed.await(10, TimeUnit.SECONDS));
+        });
+
+        // the subscription is cancelled, later changes no longer reach the client
+        int sends = eventSink.sends.get();
+        changeFeed.appliedRecords.applied(appliedRecord(0, EVENTS_PER_PUBLISHER));
+        assertEquals(sends, eventSink.sends.get());
+    }
+
+    @Test
+    public void slowClientDoesNotBlockTheStreamThread() throws InterruptedException {
+        StuckEventSink eventSink = new StuckEventSink();
+        ChangeFeedSink sink = new ChangeFeedSink(eventSink, new SseImpl(), null, QUEUE_SIZE, changeFeed::execute);
+        sink.setCancel(changeFeed.subscribe(null, new ChangeFeedFilter(null, null), sink));
+
+        // the client takes the first event and never completes it, all later ones are queued until the queue overflows
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int i = 0; i < EVENTS_PER_PUBLISHER; i++) {
+                changeFeed.appliedRecords.applied(appliedRecord(0, i));
+            }
+        });
+        assertTrue(eventSink.closed.await(10, TimeUnit.SECONDS));
+
+        assertEquals(1, eventSink.sends.get());
+        assertTrue(eventSink.sendingThread.getName().startsWith("vehicle-order-change-feed-"));
+        int sends = eventSink.sends.get();
+        changeFeed.appliedRecords.applied(appliedRecord(0, EVENTS_PER_PUBLISHER));
+        assertEquals(sends, eventSink.sends.get());
+    }
+
+    private static AppliedRecord<String, VehicleOrder> appliedRecord(int partition, long offset) {
+        return new AppliedRecord<>(TopologyProducer.VEHICLE_ORDER_STORE_NAME, "MB" + offset, vehicleOrder(offset), TOPIC,
+                partition, offset, 0L);
+    }
+
+    private static VehicleOrder vehicleOrder(long offset) {
+        return new VehicleOrder("MB" + offset, "G01", null);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Event sink of a client that stops reading, no send ever completes.
+     */
+    private static final class StuckEventSink implements SseEventSink {
+
+        private final AtomicInteger sends = new AtomicInteger();
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private volatile Thread sendingThread;
+
+        @Override
+        public boolean isClosed() {
+            return closed.getCount() == 0;
+        }
+
+        @Override
+        public CompletionStage<?> send(OutboundSseEvent event) {
+            sends.incrementAndGet();
+            sendingThread = Thread.currentThread();
+            return new CompletableFuture<>();
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+
+    /**
+     * Event sink of a client that disconnects after some events, every later
+     * send fails right away on the sending thread.
+     */
+    private static final class DisconnectingEventSink implements SseEventSink {
+
+        private final int connectedEvents;
+        private final AtomicInteger sends = new AtomicInteger();
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        private DisconnectingEventSink(int connectedEvents) {
+            this.connectedEvents = connectedEvents;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed.getCount() == 0;
+        }
+
+        @Override
+        public CompletionStage<?> send(OutboundSseEvent event) {
+            if (sends.incrementAndGet() > connectedEvents) {
+                return CompletableFuture.failedFuture(new IOException("Client disconnected"));
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+}
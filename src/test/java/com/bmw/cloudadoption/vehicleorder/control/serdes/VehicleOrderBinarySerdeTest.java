@@ -0,0 +1,93 @@
+package com.bmw.cloudadoption.vehicleorder.control.serdes;
+
+import com.bmw.cloudadoption.vehicleorder.entity.AssemblyLine;
+import com.bmw.cloudadoption.vehicleorder.entity.OrderPerPlant;
+import com.bmw.cloudadoption.vehicleorder.entity.VehicleOrder;
+
+import io.quarkus.kafka.client.serialization.JsonbSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VehicleOrderBinarySerdeTest {
+
+    private static final String TOPIC = "bmw.cloudadoption.VehicleMockOrder.v1";
+
+    private final VehicleOrderBinarySerde serde = new VehicleOrderBinarySerde();
+
+    @Test
+    public void roundTrip() {
+        VehicleOrder vehicleOrder = vehicleOrder();
+
+        byte[] bytes = serde.serializer().serialize(TOPIC, vehicleOrder);
+
+        assertEquals(vehicleOrder, serde.deserializer().deserialize(TOPIC, bytes));
+    }
+
+    @Test
+    public void roundTripWithNullFields() {
+        OrderPerPlant orderPerPlant = new OrderPerPlant(null, LocalDate.of(1969, 12, 31), null, null);
+        VehicleOrder vehicleOrder = new VehicleOrder("MB25042", null, Arrays.asList(orderPerPlant, null));
+
+        byte[] bytes = serde.serializer().serialize(TOPIC, vehicleOrder);
+
+        assertEquals(vehicleOrder, serde.deserializer().deserialize(TOPIC, bytes));
+        assertEquals(new VehicleOrder(), serde.deserializer().deserialize(TOPIC, serde.serializer().serialize(TOPIC, new VehicleOrder())));
+        assertNull(serde.deserializer().deserialize(TOPIC, null));
+    }
+
+    @Test
+    public void readsJsonRecords() {
+        VehicleOrder vehicleOrder = vehicleOrder();
+        byte[] json;
+        try (JsonbSerializer<VehicleOrder> jsonSerializer = new JsonbSerializer<>()) {
+            json = jsonSerializer.serialize(TOPIC, vehicleOrder);
+        }
+
+        assertEquals(vehicleOrder, serde.deserializer().deserialize(TOPIC, json));
+        assertTrue(serde.serializer().serialize(TOPIC, vehicleOrder).length < json.length / 2);
+    }
+
+    @Test
+    public void internsLowCardinalityFields() {
+        VehicleOrder first = serde.deserializer().deserialize(TOPIC, serde.serializer().serialize(TOPIC, vehicleOrder()));
+        VehicleOrder second = serde.deserializer().deserialize(TOPIC, serde.serializer().serialize(TOPIC, vehicleOrder()));
+
+        OrderPerPlant firstPlant = first.getOrderPerPlant().get(0);
+        OrderPerPlant secondPlant = second.getOrderPerPlant().get(0);
+        assertSame(first.getVehicleId(), second.getVehicleId());
+        assertSame(firstPlant.getPlantId(), secondPlant.getPlantId());
+        assertSame(firstPlant.getPlantId(), secondPlant.getAssemblyLine().getPlantId());
+        assertSame(firstPlant.getPlannedOrderStartDate(), secondPlant.getPlannedOrderStartDate());
+    }
+
+    @Test
+    public void readsVersion1Records() {
+        byte[] bytes = {VehicleOrderBinarySerializer.MAGIC, VehicleOrderBinarySerializer.VERSION_1,
+                4, 'M', 'B', '1', 0, (byte) VehicleOrderBinarySerializer.NULL_LIST};
+
+        assertEquals(new VehicleOrder("MB1", null, null), serde.deserializer().deserialize(TOPIC, bytes));
+    }
+
+    @Test
+    public void keepsEmptyAndNullListsApart() {
+        VehicleOrder empty = new VehicleOrder("MB1", null, Collections.emptyList());
+        VehicleOrder missing = new VehicleOrder("MB1", null, null);
+
+        assertEquals(empty, serde.deserializer().deserialize(TOPIC, serde.serializer().serialize(TOPIC, empty)));
+        assertEquals(missing, serde.deserializer().deserialize(TOPIC, serde.serializer().serialize(TOPIC, missing)));
+    }
+
+    private static VehicleOrder vehicleOrder() {
+        AssemblyLine assemblyLine = new AssemblyLine("034.00", "R0", "01");
+        OrderPerPlant orderPerPlant = new OrderPerPlant("034.00", LocalDate.of(2022, 5, 11), LocalDate.of(2022, 5, 12), assemblyLine);
+        return new VehicleOrder("MB25042", "G01", Collections.singletonList(orderPerPlant));
+    }
+}